@@ -1,4 +1,5 @@
 import java.awt.*;
+import java.awt.geom.Ellipse2D;
 import java.awt.geom.Rectangle2D;
 
 import javax.swing.JComponent;
@@ -13,6 +14,10 @@ public class Board extends JComponent
 	private Pit[][] pits;
 	private int[] mancalas;
 	private Layout layout;
+	private int hover = -1;
+	private int hintPlayer = -1;
+	private int[] hints;
+	private static final Color HIGHLIGHT = new Color(255, 255, 255, 80);
 	
 	/**
 	 * Constructor that sets the layout of the board
@@ -49,6 +54,86 @@ public class Board extends JComponent
 	public void paintComponent(Graphics g)
 	{
 		layout.redraw(g, this, pits, mancalas);
+		Graphics2D g2 = (Graphics2D) g;
+		if (hintPlayer >= 0)
+		{
+			layout.drawHints(g2, hintPlayer, hints);
+		}
+		if (hover >= 0)
+		{
+			Rectangle2D.Double r = layout.getCellRect(hover);
+			g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+					RenderingHints.VALUE_ANTIALIAS_ON);
+			g2.setColor(HIGHLIGHT);
+			g2.fill(new Ellipse2D.Double(r.x, r.y, r.width, r.height));
+		}
+	}
+
+	/**
+	 * Finds the pit or mancala under a point
+	 * @param p a point on the board
+	 * @return a cell index as used by BoardState, or -1 for none
+	 */
+	public int cellAt(Point p)
+	{
+		return layout.cellAt(p.getX(), p.getY());
+	}
+
+	/**
+	 * Highlights a pit, redrawing only the old and new ones
+	 * @param cell the cell index of a pit as used by BoardState, or -1
+	 * for none
+	 */
+	public void setHover(int cell)
+	{
+		if (cell == hover)
+		{
+			return;
+		}
+		if (hover >= 0)
+		{
+			repaint(layout.getCellRect(hover).getBounds());
+		}
+		hover = cell;
+		if (hover >= 0)
+		{
+			repaint(layout.getCellRect(hover).getBounds());
+		}
+	}
+
+	/**
+	 * Shows a score over each pit of a player, redrawing only the pits
+	 * of the players that had or now have scores
+	 * @param player the player whose pits are scored, or -1 for none
+	 * @param scores the score of each pit, HintAnalyzer.NO_SCORE for a
+	 * pit that cannot be played, or null for none
+	 */
+	public void setHints(int player, int[] scores)
+	{
+		int old = hintPlayer;
+		hintPlayer = scores == null ? -1 : player;
+		hints = scores;
+		repaintPits(old);
+		if (hintPlayer != old)
+		{
+			repaintPits(hintPlayer);
+		}
+	}
+
+	/**
+	 * Redraws the pits of a player
+	 * @param player a player, or -1 for none
+	 */
+	private void repaintPits(int player)
+	{
+		if (player < 0)
+		{
+			return;
+		}
+		for (Rectangle2D.Double r : layout.getPitRects()[player])
+		{
+			repaint(r.getBounds());
+		}
 	}
 
 	/**
@@ -61,4 +146,36 @@ public class Board extends JComponent
 		this.pits = pits;
 		this.mancalas = mancalas;
 	}
+
+	/**
+	 * Checks if the board has stones to draw
+	 * @return whether setData has been called
+	 */
+	public boolean hasData()
+	{
+		return pits != null;
+	}
+
+	/**
+	 * Updates the stones in one pit or mancala and redraws only that
+	 * part of the board
+	 * @param index a cell index as used by BoardState
+	 * @param count the number of stones in the cell
+	 */
+	public void setCell(int index, int count)
+	{
+		// Each player's pits are followed by his mancala
+		int stride = pits[0].length + 1;
+		int player = index / stride;
+		int pit = index % stride;
+		if (pit == pits[0].length)
+		{
+			mancalas[player] = count;
+		}
+		else
+		{
+			pits[player][pit].setCount(count);
+		}
+		repaint(layout.getCellRect(index).getBounds());
+	}
 }
@@ -0,0 +1,793 @@
+/**
+ * A compact representation of a mancala board. All pits and mancalas
+ * are stored in a single primitive array in sowing order, so moves can
+ * be played without allocating any objects.
+ *
+ * Each player has a run of pits followed by his mancala. On the standard
+ * board cells 0 - 5 are player 1's pits, cell 6 is player 1's mancala,
+ * cells 7 - 12 are player 2's pits and cell 13 is player 2's mancala.
+ * Any number of players and pits can be used; the pit across from a pit
+ * is the mirrored pit of the next player. The order each player sows
+ * in is worked out once into flat tables shared by copies of the board.
+ *
+ * The board keeps the number of stones on each side and a bitmask of
+ * each side's non-empty pits up to date as stones move, so finding the
+ * playable pits or an empty side takes no scan of the board. It also
+ * remembers which cells its moves changed, so views can redraw only
+ * those.
+ * @author Team7
+ *
+ */
+public class BoardState
+{
+	/** The number of players on the standard board */
+	public static final int PLAYERS = 2;
+	/** The number of pits per player on the standard board */
+	public static final int PITS = 6;
+	/** The number of cells per player on the standard board */
+	public static final int STRIDE = PITS + 1;
+	/** The number of cells on the standard board */
+	public static final int SIZE = PLAYERS * STRIDE;
+
+	/** Result flag of play: the player moves again */
+	public static final int FREE_TURN = 1;
+	/** Result flag of play: the last stone captured the pit across */
+	public static final int CAPTURE = 2;
+	/** Result flag of play: one side is empty and the game is over */
+	public static final int GAME_OVER = 4;
+	/** Result of make: the pit cannot be played and nothing changed */
+	public static final int ILLEGAL = -1;
+
+	private static final Geometry STANDARD = new Geometry(PLAYERS, PITS);
+
+	private final Geometry geometry;
+	private final int players;
+	private final int pits;
+	private final int stride;
+	private final int size;
+	private final int[] cells;
+	private final int[] totals;
+	private final long[] occupied;
+	private long changed;
+
+	/**
+	 * The sowing tables of one board size
+	 */
+	private static class Geometry
+	{
+		final int players;
+		final int pits;
+		final int size;
+		/** The number of cells a player sows into */
+		final int cycleLength;
+		/** The cells each player sows into, starting from his first pit */
+		final int[] cycle;
+		/** The pit across from each pit */
+		final int[] across;
+		/** The changed bits of each player's whole cycle */
+		final long[] cycleMask;
+		/** The changed bits of the first k cells of each player's cycle */
+		final long[] prefixMask;
+		/** Whether some cells share a changed bit */
+		final boolean wide;
+		/** The bit of each pit in its side's mask, or 0 for mancalas */
+		final long[] pitBit;
+		/** The mask of a side with every pit full */
+		final long allPits;
+
+		Geometry(int players, int pits)
+		{
+			this.players = players;
+			this.pits = pits;
+			int stride = pits + 1;
+			size = players * stride;
+			cycleLength = size - (players - 1);
+			cycle = new int[players * cycleLength];
+			across = new int[size];
+			cycleMask = new long[players];
+			prefixMask = new long[players * (cycleLength + 1)];
+			wide = size > 64;
+			pitBit = new long[size];
+			allPits = pits == 64 ? -1L : (1L << pits) - 1;
+			for (int i = 0; i < size; i++)
+			{
+				boolean store = i % stride == pits;
+				pitBit[i] = store ? 0 : 1L << (i % stride);
+			}
+			for (int p = 0; p < players; p++)
+			{
+				int first = p * stride;
+				int count = 0;
+				for (int i = 0; i < size; i++)
+				{
+					// Every cell but the other players' mancalas
+					int cell = (first + i) % size;
+					if (cell % stride != pits || cell / stride == p)
+					{
+						cycle[p * cycleLength + count] = cell;
+						cycleMask[p] |= bit(cell);
+						count++;
+						prefixMask[p * (cycleLength + 1) + count] = cycleMask[p];
+					}
+				}
+				for (int pit = 0; pit < pits; pit++)
+				{
+					across[first + pit] = (p + 1) % players * stride + pits - 1 - pit;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Constructs a standard board with the given number of stones in
+	 * every pit
+	 * @param stones number of stones per pit
+	 */
+	public BoardState(int stones)
+	{
+		this(STANDARD, stones);
+	}
+
+	/**
+	 * Constructs a board of any size with the given number of stones in
+	 * every pit
+	 * @param players the number of players, at least 2
+	 * @param pits the number of pits per player, at least 1
+	 * @param stones number of stones per pit
+	 */
+	public BoardState(int players, int pits, int stones)
+	{
+		this(players == PLAYERS && pits == PITS ? STANDARD : geometry(players, pits), stones);
+	}
+
+	/**
+	 * Constructs a board from its sowing tables
+	 */
+	private BoardState(Geometry geometry, int stones)
+	{
+		this.geometry = geometry;
+		players = geometry.players;
+		pits = geometry.pits;
+		stride = pits + 1;
+		size = geometry.size;
+		cells = new int[size];
+		totals = new int[players];
+		occupied = new long[players];
+		for (int i = 0; i < players; i++)
+		{
+			for (int j = 0; j < pits; j++)
+			{
+				cells[index(i, j)] = stones;
+			}
+		}
+		recount();
+	}
+
+	/**
+	 * Constructs a copy of another board
+	 * @param other the board to copy
+	 */
+	public BoardState(BoardState other)
+	{
+		geometry = other.geometry;
+		players = other.players;
+		pits = other.pits;
+		stride = other.stride;
+		size = other.size;
+		cells = other.cells.clone();
+		totals = other.totals.clone();
+		occupied = other.occupied.clone();
+		changed = other.changed;
+	}
+
+	/**
+	 * Checks the size of a board and works out its tables
+	 */
+	private static Geometry geometry(int players, int pits)
+	{
+		if (players < 2 || pits < 1 || pits > 64)
+		{
+			throw new IllegalArgumentException(
+					"A board needs at least 2 players and from 1 to 64 pits.");
+		}
+		return new Geometry(players, pits);
+	}
+
+	/**
+	 * Works out the side totals and masks from the cells
+	 */
+	private void recount()
+	{
+		for (int i = 0; i < players; i++)
+		{
+			int total = 0;
+			long mask = 0;
+			for (int j = 0; j < pits; j++)
+			{
+				int count = cells[index(i, j)];
+				total += count;
+				if (count != 0)
+				{
+					mask |= 1L << j;
+				}
+			}
+			totals[i] = total;
+			occupied[i] = mask;
+		}
+	}
+
+	/**
+	 * Gets the bit of a cell in the changed mask. Cells past 63 share
+	 * the last bit.
+	 */
+	private static long bit(int index)
+	{
+		return 1L << Math.min(index, 63);
+	}
+
+	/**
+	 * Gets the number of players
+	 * @return the number of players
+	 */
+	public int getPlayers()
+	{
+		return players;
+	}
+
+	/**
+	 * Gets the number of pits on each side
+	 * @return the number of pits per player
+	 */
+	public int getPits()
+	{
+		return pits;
+	}
+
+	/**
+	 * Gets the number of pits and mancalas
+	 * @return the number of cells
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Checks if this is the standard two player, six pit board
+	 * @return whether the board has the standard size
+	 */
+	public boolean isStandard()
+	{
+		return geometry == STANDARD;
+	}
+
+	/**
+	 * Copies the contents of another board of the same size into this one
+	 * @param other the board to copy
+	 */
+	public void copyFrom(BoardState other)
+	{
+		System.arraycopy(other.cells, 0, cells, 0, size);
+		for (int i = 0; i < players; i++)
+		{
+			totals[i] = other.totals[i];
+			occupied[i] = other.occupied[i];
+		}
+		changed = other.changed;
+	}
+
+	/**
+	 * Copies the cells of this board into an array
+	 * @param buffer the array to write into
+	 * @param offset the position of the first cell in the array
+	 */
+	public void save(int[] buffer, int offset)
+	{
+		System.arraycopy(cells, 0, buffer, offset, size);
+	}
+
+	/**
+	 * Copies the cells of this board from an array
+	 * @param buffer the array to read from
+	 * @param offset the position of the first cell in the array
+	 */
+	public void restore(int[] buffer, int offset)
+	{
+		System.arraycopy(buffer, offset, cells, 0, size);
+		recount();
+	}
+
+	/**
+	 * Swaps the cells of this board with the cells stored in an array
+	 * @param buffer the array holding the other board
+	 * @param offset the position of the first cell in the array
+	 */
+	public void exchange(int[] buffer, int offset)
+	{
+		for (int i = 0; i < size; i++)
+		{
+			int temp = buffer[offset + i];
+			if (temp != cells[i])
+			{
+				changed |= bit(i);
+			}
+			buffer[offset + i] = cells[i];
+			cells[i] = temp;
+		}
+		recount();
+	}
+
+	/**
+	 * Gets the cell index of a pit
+	 * @param player a player
+	 * @param pit a pit
+	 * @return the cell index
+	 */
+	public int index(int player, int pit)
+	{
+		return player * stride + pit;
+	}
+
+	/**
+	 * Gets the cell index of a player's mancala
+	 * @param player a player
+	 * @return the cell index
+	 */
+	public int storeIndex(int player)
+	{
+		return player * stride + pits;
+	}
+
+	/**
+	 * Checks if a cell is a mancala
+	 * @param index a cell index
+	 * @return whether the cell is a mancala
+	 */
+	public boolean isStore(int index)
+	{
+		return index % stride == pits;
+	}
+
+	/**
+	 * Gets the player that owns a cell
+	 * @param index a cell index
+	 * @return the owner of the cell
+	 */
+	public int owner(int index)
+	{
+		return index / stride;
+	}
+
+	/**
+	 * Gets the pit number of a cell
+	 * @param index a cell index
+	 * @return the pit number on its owner's side
+	 */
+	public int pitOf(int index)
+	{
+		return index % stride;
+	}
+
+	/**
+	 * Gets the cell across the board from a pit
+	 * @param index a cell index of a pit
+	 * @return the cell index of the opposite pit
+	 */
+	public int opposite(int index)
+	{
+		return geometry.across[index];
+	}
+
+	/**
+	 * Gets the number of stones in a pit
+	 * @param player a player
+	 * @param pit a pit
+	 * @return the number of stones
+	 */
+	public int get(int player, int pit)
+	{
+		return cells[index(player, pit)];
+	}
+
+	/**
+	 * Gets the number of stones in a player's mancala
+	 * @param player a player
+	 * @return the number of stones
+	 */
+	public int getStore(int player)
+	{
+		return cells[storeIndex(player)];
+	}
+
+	/**
+	 * Gets the number of stones in a cell
+	 * @param index a cell index
+	 * @return the number of stones
+	 */
+	public int getCell(int index)
+	{
+		return cells[index];
+	}
+
+	/**
+	 * Sets the number of stones in a cell
+	 * @param index a cell index
+	 * @param count the number of stones
+	 */
+	public void setCell(int index, int count)
+	{
+		// Mancalas are not counted in the side totals
+		if (!isStore(index))
+		{
+			int side = owner(index);
+			totals[side] += count - cells[index];
+			occupied[side] = count != 0 ? occupied[side] | geometry.pitBit[index]
+					: occupied[side] & ~geometry.pitBit[index];
+		}
+		cells[index] = count;
+		changed |= bit(index);
+	}
+
+	/**
+	 * Gets the cells that changed since the last call to clearChanged
+	 * @return a bitmask with a bit set for every changed cell index,
+	 * where bit 63 also stands for every cell after it
+	 */
+	public long getChanged()
+	{
+		return changed;
+	}
+
+	/**
+	 * Starts tracking changes afresh
+	 */
+	public void clearChanged()
+	{
+		changed = 0;
+	}
+
+	/**
+	 * Counts the stones that are still in play
+	 * @return the number of stones in all pits
+	 */
+	public int stonesInPits()
+	{
+		int total = 0;
+		for (int i = 0; i < players; i++)
+		{
+			total += totals[i];
+		}
+		return total;
+	}
+
+	/**
+	 * Counts the stones in a player's pits
+	 * @param player a player
+	 * @return the number of stones on the player's side
+	 */
+	public int getSideTotal(int player)
+	{
+		return totals[player];
+	}
+
+	/**
+	 * Gets the pits of a player that have stones in them
+	 * @param player a player
+	 * @return a bitmask with bit i set if pit i is not empty
+	 */
+	public long getOccupiedPits(int player)
+	{
+		return occupied[player];
+	}
+
+	/**
+	 * Gets the pits a player can play. When the game is over every pit
+	 * is empty, so there are none.
+	 * @param player a player
+	 * @return a bitmask with bit i set if pit i can be played
+	 */
+	public long getLegalMoves(int player)
+	{
+		return occupied[player];
+	}
+
+	/**
+	 * Checks if a player can play a pit
+	 * @param player a player
+	 * @param pit a pit, which need not exist
+	 * @return whether the pit is on the board and has stones in it
+	 */
+	public boolean isLegalMove(int player, int pit)
+	{
+		return pit >= 0 && pit < pits && (occupied[player] & 1L << pit) != 0;
+	}
+
+	/**
+	 * Plays a move if it is legal, first saving the board so unmake can
+	 * take the move back
+	 * @param player the player moving
+	 * @param pit the pit to pick up
+	 * @param undo an array of at least getSize() cells from offset
+	 * @param offset where to save the board in the array
+	 * @return the result of play, or ILLEGAL if the pit cannot be played
+	 */
+	public int make(int player, int pit, int[] undo, int offset)
+	{
+		if (!isLegalMove(player, pit))
+		{
+			return ILLEGAL;
+		}
+		save(undo, offset);
+		return play(player, pit);
+	}
+
+	/**
+	 * Takes back a move played with make
+	 * @param undo the array the board was saved in
+	 * @param offset where the board was saved
+	 */
+	public void unmake(int[] undo, int offset)
+	{
+		restore(undo, offset);
+	}
+
+	/**
+	 * Picks up the stones of a pit and distributes them counterclockwise,
+	 * skipping the opponents' mancalas. The sowing is worked out with
+	 * arithmetic: every full lap of the board adds the same number to
+	 * every cell, and the stones left over fill at most two runs of the
+	 * player's sowing cycle.
+	 * @param player the player moving
+	 * @param pit the pit to pick up
+	 * @return the cell index the last stone was dropped in
+	 */
+	public int sow(int player, int pit)
+	{
+		Geometry g = geometry;
+		int length = g.cycleLength;
+		int[] cycle = g.cycle;
+		int index = index(player, pit);
+		int stones = cells[index];
+		cells[index] = 0;
+		totals[player] -= stones;
+		occupied[player] &= ~g.pitBit[index];
+		changed |= bit(index);
+
+		// The cycle starts at the player's first pit, so the pit picked
+		// up is at the same position in it
+		int start = player * length;
+		int laps = stones / length;
+		if (laps > 0)
+		{
+			for (int k = start; k < start + length; k++)
+			{
+				cells[cycle[k]] += laps;
+			}
+			for (int i = 0; i < players; i++)
+			{
+				// A lap drops a stone in every pit
+				totals[i] += laps * pits;
+				occupied[i] = g.allPits;
+			}
+			changed |= g.cycleMask[player];
+		}
+		int end = pit + stones - laps * length;
+		if (end < length)
+		{
+			sowRun(player, pit + 1, end);
+			return cycle[start + end];
+		}
+		sowRun(player, pit + 1, length - 1);
+		sowRun(player, 0, end - length);
+		return cycle[start + end - length];
+	}
+
+	/**
+	 * Adds a stone to each cell of a run of a player's sowing cycle. The
+	 * side totals and masks are updated once for each side the run
+	 * crosses rather than once for each stone.
+	 * @param from the position in the cycle of the first cell
+	 * @param to the position in the cycle of the last cell
+	 */
+	private void sowRun(int player, int from, int to)
+	{
+		if (from > to)
+		{
+			return;
+		}
+		Geometry g = geometry;
+		int start = player * g.cycleLength;
+		int[] cycle = g.cycle;
+		for (int k = start + from; k <= start + to; k++)
+		{
+			cells[cycle[k]]++;
+		}
+		// The cycle holds the player's pits, his mancala, then the pits
+		// of each other player in turn
+		int side = player;
+		for (int base = 0; base <= to; base += base == 0 ? stride : pits)
+		{
+			int first = Math.max(from, base) - base;
+			int last = Math.min(to, base + pits - 1) - base;
+			if (first <= last)
+			{
+				totals[side] += last - first + 1;
+				occupied[side] |= (-1L >>> (63 - last)) & (-1L << first);
+			}
+			side = nextPlayer(side);
+		}
+		if (g.wide)
+		{
+			changed |= g.cycleMask[player];
+		}
+		else
+		{
+			int row = player * (g.cycleLength + 1);
+			changed |= g.prefixMask[row + to + 1] ^ g.prefixMask[row + from];
+		}
+	}
+
+	/**
+	 * Moves the stones of a pit and of the pit across from it into
+	 * the player's mancala
+	 * @param player the player capturing
+	 * @param pit the pit the last stone landed in
+	 */
+	public void capture(int player, int pit)
+	{
+		Geometry g = geometry;
+		int index = index(player, pit);
+		int across = opposite(index);
+		int victim = owner(across);
+		cells[storeIndex(player)] += cells[index] + cells[across];
+		totals[player] -= cells[index];
+		totals[victim] -= cells[across];
+		occupied[player] &= ~g.pitBit[index];
+		occupied[victim] &= ~g.pitBit[across];
+		cells[index] = 0;
+		cells[across] = 0;
+		changed |= bit(storeIndex(player)) | bit(index) | bit(across);
+	}
+
+	/**
+	 * Plays a whole move with the same rules as Model: ending in the
+	 * player's mancala or capturing gives another turn, and the game
+	 * ends when any side is empty and every player takes the stones
+	 * left on his side.
+	 * @param player the player moving
+	 * @param pit a pit that is not empty
+	 * @return a combination of FREE_TURN, CAPTURE and GAME_OVER
+	 */
+	public int play(int player, int pit)
+	{
+		int result = 0;
+		int last = sow(player, pit);
+		if (isStore(last))
+		{
+			result = FREE_TURN;
+		}
+		else if (owner(last) == player && cells[last] == 1)
+		{
+			capture(player, pitOf(last));
+			result = FREE_TURN | CAPTURE;
+		}
+
+		for (int i = 0; i < players; i++)
+		{
+			if (isSideEmpty(i))
+			{
+				sweepAll();
+				return result | GAME_OVER;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Checks if all of a player's pits are empty
+	 * @param player a player
+	 * @return whether the side is empty
+	 */
+	public boolean isSideEmpty(int player)
+	{
+		return occupied[player] == 0;
+	}
+
+	/**
+	 * Moves every stone left on a player's side into his mancala
+	 * @param player a player
+	 */
+	public void sweep(int player)
+	{
+		int start = index(player, 0);
+		int store = storeIndex(player);
+		for (long left = occupied[player]; left != 0; left &= left - 1)
+		{
+			int i = start + Long.numberOfTrailingZeros(left);
+			cells[store] += cells[i];
+			cells[i] = 0;
+			changed |= bit(i) | bit(store);
+		}
+		totals[player] = 0;
+		occupied[player] = 0;
+	}
+
+	/**
+	 * Moves the stones left on every side into their owners' mancalas
+	 */
+	public void sweepAll()
+	{
+		for (int i = 0; i < players; i++)
+		{
+			sweep(i);
+		}
+	}
+
+	/**
+	 * Builds a Pit view of the board for drawing
+	 * @return a 2-dimensional array of player pits
+	 */
+	public Pit[][] toPits()
+	{
+		Pit[][] view = new Pit[players][pits];
+		for (int i = 0; i < players; i++)
+		{
+			for (int j = 0; j < pits; j++)
+			{
+				view[i][j] = new Pit();
+				view[i][j].setCount(get(i, j));
+			}
+		}
+		return view;
+	}
+
+	/**
+	 * Builds an array of the mancalas
+	 * @return a single array of player mancalas
+	 */
+	public int[] toStores()
+	{
+		int[] stores = new int[players];
+		for (int i = 0; i < players; i++)
+		{
+			stores[i] = getStore(i);
+		}
+		return stores;
+	}
+
+	/**
+	 * Finds who has the most stones in his mancala, as at the end of a
+	 * game
+	 * @return the player with the most stones, or -1 if players tie for
+	 * the most
+	 */
+	public int winner()
+	{
+		int winner = 0;
+		boolean tie = false;
+		for (int i = 1; i < players; i++)
+		{
+			int stones = getStore(i);
+			if (stones > getStore(winner))
+			{
+				winner = i;
+				tie = false;
+			}
+			else if (stones == getStore(winner))
+			{
+				tie = true;
+			}
+		}
+		return tie ? -1 : winner;
+	}
+
+	/**
+	 * Get the next side of the players
+	 * @param player a side of the players
+	 * @return the next side
+	 */
+	public int nextPlayer(int player)
+	{
+		return player + 1 == players ? 0 : player + 1;
+	}
+}
@@ -1,6 +1,5 @@
 import java.awt.*;
 import java.io.*;
-import javax.imageio.ImageIO;
 import java.awt.image.*;
 import java.awt.geom.*;
 import java.util.*;
@@ -11,12 +10,10 @@ import java.util.*;
  */
 public class ClassicLayout extends Layout
 {
-	private Rectangle2D.Double[] mRects;
+	static final String BACKGROUND = "resources/c.png";
+	static final String STONE = "resources/cstone.png";
 	private int nPlayers;
 	private int boardLength;
-	private Image bg;
-	private Image stone;
-	private static Random rand = new Random();
 /**
 	 * Constructor that creates the layout of the game
 	 * @param nPlayers the number of players
@@ -27,13 +24,13 @@ public class ClassicLayout extends Layout
 		super(nPlayers, boardLength);
 		this.nPlayers = nPlayers;
 		this.boardLength = boardLength;
-		mRects = new Rectangle2D.Double[nPlayers];
-		try
-		{
-			bg = ImageIO.read(new File("resources/c.png"));
-			stone = ImageIO.read(new File("resources/cstone.png"));
-		}
-		catch (Exception e) { bg = null; }
+	}
+
+	@Override
+	public void loadAssets() throws IOException
+	{
+		setBackgroundImage(BACKGROUND);
+		setStoneImage(STONE);
 	}
 
 	/**
@@ -42,18 +39,16 @@ public class ClassicLayout extends Layout
 	@Override
 	public void redraw(Graphics g, Board b, Pit[][] pits, int[] mancalas)
 	{
-		g.drawImage(bg, 0, 0, 455, 325, b);
+		drawBackground(g, b);
 
 		Graphics2D g2 = (Graphics2D) g;
 
 		// Draw the stones.
 		for (int r = 0; r < pits.length; r++)
 			for (int c = 0; c < pits[r].length; c++)
-				for (int s = 0; s < pits[r][c].getCount(); s++)
-					drawStone(pitRects[r][c], g, b, s);
+				drawStones(pitRects[r][c], g, b, pits[r][c].getCount());
 		for (int m = 0; m < mRects.length; m++)
-			for(int s = 0; s < mancalas[m]; s++)
-				drawStone(mRects[m], g, b, s);
+			drawStones(mRects[m], g, b, mancalas[m]);
 		}
 
 	/**
@@ -86,21 +81,4 @@ public class ClassicLayout extends Layout
 
 	@Override
 	public String getName() { return "Classic Layout"; }
-
-	/**
-	 * Creates an ellipse to use as a stone.
-	 * @param r the bounding box to draw into
-	 * @param g the graphics context to draw into
-	 * @param b the board to use for as component to draw to
-	 * @param n an integer to aid in seeding the random number generator
-	 */
-	private void drawStone(Rectangle2D.Double r, Graphics g, Board b, int n)
-	{
-		rand.setSeed((int)r.getX() * n +  (int)r.getY() * n + n * n);
-		int x = rand.nextInt((int)r.getWidth() - stone.getWidth(b));
-		int y = rand.nextInt((int)r.getHeight() - stone.getHeight(b));
-		g.drawImage(stone, (int)r.getX() + x, (int)r.getY() + y, stone.getWidth(b),
-				stone.getHeight(b), b);
-	}
-	
 }
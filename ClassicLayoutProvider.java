@@ -0,0 +1,27 @@
+/**
+ * Provides the ClassicLayout
+ * @author Team7
+ */
+public class ClassicLayoutProvider implements LayoutProvider
+{
+	@Override
+	public String getName() { return "Classic Layout"; }
+
+	@Override
+	public boolean supports(int players, int pits)
+	{
+		return players == 2 && pits == 6;
+	}
+
+	@Override
+	public String[] getImages()
+	{
+		return new String[] { ClassicLayout.BACKGROUND, ClassicLayout.STONE };
+	}
+
+	@Override
+	public Layout create(int players, int pits)
+	{
+		return new ClassicLayout(players, pits);
+	}
+}
@@ -1,6 +1,9 @@
 import java.awt.event.*;
-import java.awt.geom.Rectangle2D;
 import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
@@ -11,22 +14,38 @@ import javax.swing.event.ChangeListener;
  * @author Team7
  */
 public class Controller extends JFrame implements MouseListener,
-			 ChangeListener, ActionListener
+			 MouseMotionListener, ChangeListener, ActionListener
 {
 	private Model game;
 	private Board board;
 	private JLabel player;
 	private JButton undoButton;
+	private JButton redoButton;
+	private JToggleButton hintButton;
+	private HintAnalyzer hints;
+	private SearchEngine engine;
+	private boolean thinking;
+	private boolean stepping;
 	private static final int WIDTH = 700;
 	private static final int HEIGHT = 400;
 	private static final int BOARD_WIDTH = 455;
 	private static final int BOARD_HEIGHT = 325;
+	private static final int COMPUTER = 1;
+	private static final long THINK_MILLIS = 1000;
+	private static final int ENGINE_DEPTH = 64;
+	private static final int ENGINE_TABLE_MB = 32;
+	private static final int ENGINE_UNDO_DEPTH = 32;
+	private static final String ENDGAME_FILE = "endgame.db";
+	private static final String OPENING_FILE = "opening.book";
 	
 	/**
 	 * The view and frame that shows the mancala game visually
+	 * @param layouts the layouts the player can choose from
 	 */
-	public Controller(Layout[] layouts)
+	public Controller(List<LayoutProvider> layouts)
 	{
+		if (layouts.isEmpty())
+			throw new IllegalStateException("No layouts were found.");
 		makeDialog(layouts);
 	}
 
@@ -37,8 +56,60 @@ public class Controller extends JFrame implements MouseListener,
 	 */
 	public void start(int stones, Layout layout)
 	{
-		game = new Model(stones);
+		start(stones, layout, false);
+	}
+
+	/**
+	 * Initalize the data model and start the mancala game
+	 * @param stones the initial stone count
+	 * @param layout the layout for the board to use
+	 * @param computer whether the computer plays player 2
+	 */
+	public void start(int stones, Layout layout, boolean computer)
+	{
+		if (computer)
+		{
+			engine = new SearchEngine(ENGINE_DEPTH, ENGINE_TABLE_MB,
+					Runtime.getRuntime().availableProcessors());
+			if (new File(ENDGAME_FILE).exists())
+			{
+				try
+				{
+					engine.setEndgameDatabase(EndgameDatabase.open(ENDGAME_FILE));
+				}
+				catch (IOException ex)
+				{
+					// The computer can still play by searching to the end
+					JOptionPane.showMessageDialog(this, ex.getMessage()
+							+ "\nThe computer will play endgames without it.",
+							"Endgame Database", JOptionPane.WARNING_MESSAGE);
+				}
+			}
+			if (new File(OPENING_FILE).exists())
+			{
+				try
+				{
+					engine.setOpeningBook(OpeningBook.open(OPENING_FILE));
+				}
+				catch (IOException ex)
+				{
+					// The computer searches the opening like any other position
+					JOptionPane.showMessageDialog(this, ex.getMessage()
+							+ "\nThe computer will search the opening instead.",
+							"Opening Book", JOptionPane.WARNING_MESSAGE);
+				}
+			}
+		}
+		// Undo takes back the computer's moves too, so it needs more history
+		game = computer ? new Model(stones, ENGINE_UNDO_DEPTH) : new Model(stones);
 		board = new Board(layout);
+		// Scores the active player's pits in the background while shown
+		hints = new HintAnalyzer(board);
+		hintButton = new JToggleButton("Hints");
+		hintButton.addActionListener(event -> updateHints());
+		// Takes back the last undo, enabled by stateChanged
+		redoButton = new JButton("Redo");
+		redoButton.addActionListener(event -> redo());
 		game.attach(this);
 		
 		setSize(WIDTH,HEIGHT);
@@ -46,7 +117,7 @@ public class Controller extends JFrame implements MouseListener,
 		
 		// Displays the active player
       player = new JLabel(game.getPlayer());
-      player.setPreferredSize(new Dimension(550,10));
+      player.setPreferredSize(new Dimension(400,10));
       
       // Displays the undo count 
 		undoButton = new JButton("Undo: "+game.getUndoCount());
@@ -54,11 +125,14 @@ public class Controller extends JFrame implements MouseListener,
 
 		// Add Board's mouseListener
 		board.addMouseListener(this);
+		board.addMouseMotionListener(this);
 		
 		setLayout(new FlowLayout());
 		add(board);
 		add(player);
       add(undoButton);
+      add(redoButton);
+      add(hintButton);
       setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
       setVisible(true);
       setResizable(false);
@@ -71,35 +145,57 @@ public class Controller extends JFrame implements MouseListener,
 	 */
 	public void mousePressed(MouseEvent e)
 	{
-		if (game.isGameEnd())
+		if (game.isGameEnd() || thinking)
 			return;
-		Rectangle2D.Double[][] rects = board.getPitRectangles();
-
-		for (int row = 0; row < rects.length; row++)
-			for (int col = 0; col < rects[row].length; col++)
-				if (rects[row][col].contains(e.getPoint()))
-					try
-					{
-						game.move(row,col);
-						player.setText(game.getPlayer());
-						undoButton.setText("Undo: "+ game.getUndoCount());
-					}
-					catch (IllegalArgumentException ex)
-					{
-						JOptionPane.showMessageDialog(this, ex.getMessage(),
-								"Invalid Move", JOptionPane.WARNING_MESSAGE);
-					}
+		int cell = board.cellAt(e.getPoint());
+		int pits = board.getPitRectangles()[0].length;
+		int row = cell / (pits + 1);
+		int col = cell % (pits + 1);
+		// Clicks outside the pits, or on a mancala, do nothing
+		if (cell < 0 || col == pits)
+			return;
+		if (row != game.getActive())
+		{
+			JOptionPane.showMessageDialog(this, "Player not currently active.",
+					"Invalid Move", JOptionPane.WARNING_MESSAGE);
+			return;
+		}
+		// Empty pits are ignored
+		if (game.make(col) != BoardState.ILLEGAL)
+		{
+			player.setText(game.getPlayer());
+			undoButton.setText("Undo: "+ game.getUndoCount());
+		}
 	}
 
 	/**
-	 * When a change has been made in the data, then the board
-	 * will be updated and repainted. If the game has ended
+	 * When a change has been made in the data, then the pits that
+	 * changed will be updated and repainted. If the game has ended
 	 * a dialog will state the winner and freeze any moves
 	 */
 	public void stateChanged(ChangeEvent event)
 	{
-		board.setData(game.getPits(), game.getMancalas());
-		board.repaint();
+		if (!board.hasData())
+		{
+			board.setData(game.getPits(), game.getMancalas());
+			board.repaint();
+		}
+		else
+		{
+			long changed = game.getChangedCells();
+			for (int i = 0; i < game.getCellCount(); i++)
+			{
+				if ((changed & 1L << i) != 0)
+				{
+					board.setCell(i, game.getCell(i));
+				}
+			}
+		}
+		// The pit under the mouse may no longer be playable
+		board.setHover(-1);
+		redoButton.setEnabled(game.isRedoable());
+		// The hints were for the position before
+		updateHints();
 		if (game.isGameEnd())
 			if (game.getActive() < 0)
 				JOptionPane.showMessageDialog(this, "The game ended in a draw",
@@ -107,14 +203,68 @@ public class Controller extends JFrame implements MouseListener,
 			else 
 				JOptionPane.showMessageDialog(this, "Player "+(game.getActive()+1) +
 					" is the winner!", "Game Over", JOptionPane.INFORMATION_MESSAGE);
+		else if (engine != null && game.getActive() == COMPUTER && !stepping)
+			think();
+	}
+
+	/**
+	 * Lets the computer find its move on a background thread so the
+	 * board stays responsive, then plays it
+	 */
+	private void think()
+	{
+		if (thinking)
+			return;
+		thinking = true;
+		final BoardState position = game.getState();
+		new SwingWorker<Integer, Void>()
+		{
+			protected Integer doInBackground()
+			{
+				return engine.search(position, COMPUTER, THINK_MILLIS);
+			}
+
+			protected void done()
+			{
+				thinking = false;
+				try
+				{
+					game.make(get());
+					player.setText(game.getPlayer());
+					undoButton.setText("Undo: "+ game.getUndoCount());
+				}
+				catch (InterruptedException | ExecutionException ex)
+				{
+					JOptionPane.showMessageDialog(Controller.this, ex.getMessage(),
+							"Computer Error", JOptionPane.ERROR_MESSAGE);
+				}
+			}
+		}.execute();
 	}
 
-	private void makeDialog(Layout[] layouts)
+	/**
+	 * Analyses the current position for hints if they are shown and a
+	 * person is to move, and stops analysing otherwise
+	 */
+	private void updateHints()
+	{
+		if (hintButton.isSelected() && !game.isGameEnd()
+				&& (engine == null || game.getActive() != COMPUTER))
+			hints.analyze(game.getState(), game.getActive());
+		else
+			hints.cancel();
+	}
+
+	private void makeDialog(List<LayoutProvider> layouts)
 	{
+		// Decode every layout's images while the player is choosing
+		LayoutLoader loader = new LayoutLoader(layouts);
 		StartView popup = new StartView(this, layouts);
 		popup.setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
 		popup.showDialog();
-		start(popup.stoneNumber(), popup.getSelectedLayout());
+		start(popup.stoneNumber(), loader.load(popup.getSelectedLayout(),
+				BoardState.PLAYERS, BoardState.PITS),
+				popup.isComputerOpponent());
 	}
 
 	/**
@@ -122,13 +272,62 @@ public class Controller extends JFrame implements MouseListener,
 	 */
 	public void actionPerformed(ActionEvent event)
 	{
-		game.undo();
+		if (thinking)
+			return;
+		// Against the computer, steps back to the person's last turn
+		stepping = true;
+		int steps = 0;
+		do
+		{
+			if (!game.isUndoable())
+				break;
+			game.undo();
+			steps++;
+		}
+		while (engine != null && game.getActive() == COMPUTER);
+		// Leaves the board as it was if that turn is out of reach
+		if (engine != null && game.getActive() == COMPUTER)
+			for (; steps > 0; steps--)
+				game.redo();
+		stepping = false;
 		player.setText(game.getPlayer());
 		undoButton.setText("Undo: "+game.getUndoCount());
  	}
 
+	/**
+	 * Replays the move that was last undone
+	 */
+	private void redo()
+	{
+		if (thinking)
+			return;
+		// Against the computer, replays its moves up to the person's turn
+		stepping = true;
+		game.redo();
+		while (engine != null && game.getActive() == COMPUTER && game.isRedoable())
+			game.redo();
+		stepping = false;
+		if (engine != null && game.getActive() == COMPUTER && !game.isGameEnd())
+			think();
+		player.setText(game.getPlayer());
+		undoButton.setText("Undo: "+game.getUndoCount());
+	}
+
+	/**
+	 * Highlights the pit under the mouse if it can be played
+	 */
+	public void mouseMoved(MouseEvent e)
+	{
+		int cell = board.cellAt(e.getPoint());
+		int stride = board.getPitRectangles()[0].length + 1;
+		boolean playable = cell >= 0 && !thinking
+				&& game.isLegalMove(cell / stride, cell % stride);
+		board.setHover(playable ? cell : -1);
+	}
+
+	public void mouseDragged(MouseEvent e) { mouseMoved(e); }
 	public void mouseEntered(MouseEvent e) { }
-	public void mouseExited(MouseEvent e) { }
+	public void mouseExited(MouseEvent e) { board.setHover(-1); }
 	public void mouseClicked(MouseEvent e) { }
 	public void mouseReleased(MouseEvent e) { }
 }
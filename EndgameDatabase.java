@@ -0,0 +1,126 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exact results for every position with few stones left in the pits,
+ * read from a file built by EndgameGenerator. The file is memory mapped,
+ * so the tables stay off the heap and a probe is a single array lookup.
+ *
+ * A table entry is the exact margin the player to move will win the
+ * rest of the game by: the stones he will still put in his mancala
+ * minus the stones his opponent will.
+ * @author Team7
+ *
+ */
+public class EndgameDatabase
+{
+	/** Marks the start of an endgame file */
+	public static final int MAGIC = 0x4D454742;
+	/** The file format version */
+	public static final int VERSION = 1;
+	/** The size of the file header in bytes */
+	public static final int HEADER = 16;
+
+	private final EndgameIndex index;
+	private final ByteBuffer table;
+
+	/**
+	 * Constructs a database over tables that are already in memory
+	 */
+	private EndgameDatabase(EndgameIndex index, ByteBuffer table)
+	{
+		this.index = index;
+		this.table = table;
+	}
+
+	/**
+	 * Maps an endgame file into memory
+	 * @param file the path of the file
+	 * @return the database
+	 * @throws IOException if the file cannot be read or is not an endgame file
+	 */
+	public static EndgameDatabase open(String file) throws IOException
+	{
+		Path path = Paths.get(file);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+			if (buffer.limit() < HEADER || buffer.getInt(0) != MAGIC
+					|| buffer.getInt(4) != VERSION)
+			{
+				throw new IOException(file + " is not an endgame file.");
+			}
+			if (buffer.getInt(8) != BoardState.PITS)
+			{
+				throw new IOException(file + " was built for another board size.");
+			}
+			EndgameIndex index = new EndgameIndex(buffer.getInt(12));
+			if (buffer.limit() != HEADER + index.size())
+			{
+				throw new IOException(file + " is truncated.");
+			}
+			buffer.position(HEADER);
+			return new EndgameDatabase(index, buffer.slice());
+		}
+	}
+
+	/**
+	 * Checks if a board is small enough to be in the tables
+	 * @param board a board
+	 * @return whether the board can be probed
+	 */
+	public boolean covers(BoardState board)
+	{
+		return board.isStandard() && board.stonesInPits() <= index.getMaxStones();
+	}
+
+	/**
+	 * Gets how many more stones the player to move will win by
+	 * @param board a board that is covered by the tables
+	 * @param player the player to move
+	 * @return the margin of the rest of the game with best play
+	 */
+	public int probe(BoardState board, int player)
+	{
+		int rank = (int) index.rank(board, player, board.stonesInPits());
+		return table.get(rank);
+	}
+
+	/**
+	 * Gets the final mancala difference with best play
+	 * @param board a board that is covered by the tables
+	 * @param player the player to move
+	 * @return the player's final mancala minus his opponent's
+	 */
+	public int probeScore(BoardState board, int player)
+	{
+		return board.getStore(player) - board.getStore(board.nextPlayer(player))
+				+ probe(board, player);
+	}
+
+	/**
+	 * Gets the result of the game with best play
+	 * @param board a board that is covered by the tables
+	 * @param player the player to move
+	 * @return 1 for a win, 0 for a draw and -1 for a loss
+	 */
+	public int probeResult(BoardState board, int player)
+	{
+		return Integer.signum(probeScore(board, player));
+	}
+
+	/**
+	 * Gets the most stones in pits the tables cover
+	 * @return the stone limit
+	 */
+	public int getMaxStones()
+	{
+		return index.getMaxStones();
+	}
+}
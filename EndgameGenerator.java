@@ -0,0 +1,197 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Builds the endgame tables offline. Every position with up to a fixed
+ * number of stones in the pits is solved exactly with the rules of
+ * BoardState, and the results are written to a file that
+ * EndgameDatabase maps into memory.
+ *
+ * A move never adds stones to the pits, and a move that puts nothing in
+ * a mancala only carries stones closer to their owner's mancala, so no
+ * position can repeat. Each position is therefore solved once, from the
+ * already solved positions it leads to.
+ *
+ * Usage: java EndgameGenerator [max stones] [file]
+ * @author Team7
+ */
+public class EndgameGenerator
+{
+	private static final byte UNKNOWN = Byte.MIN_VALUE;
+
+	private final EndgameIndex index;
+	private final byte[] values;
+	private final BoardState[] stack;
+
+	/**
+	 * Constructs a generator
+	 * @param maxStones the most stones left in the pits, at most 127
+	 */
+	public EndgameGenerator(int maxStones)
+	{
+		if (maxStones < 0 || maxStones > Byte.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Stone limit must be from 0 to 127.");
+		}
+		index = new EndgameIndex(maxStones);
+		if (index.size() > Integer.MAX_VALUE - EndgameDatabase.HEADER)
+		{
+			throw new IllegalArgumentException("Too many positions for one file.");
+		}
+		values = new byte[(int) index.size()];
+		Arrays.fill(values, UNKNOWN);
+
+		// Every move either removes stones from the pits or moves them
+		// closer to a mancala, which bounds how long a game can last
+		stack = new BoardState[maxStones * (BoardState.PITS + 1) + 2];
+		for (int i = 0; i < stack.length; i++)
+		{
+			stack[i] = new BoardState(0);
+		}
+	}
+
+	/**
+	 * Solves every position in the index
+	 */
+	public void generate()
+	{
+		for (int stones = 0; stones <= index.getMaxStones(); stones++)
+		{
+			fill(0, stones);
+		}
+	}
+
+	/**
+	 * Spreads the remaining stones over the pits from a cell onwards
+	 * and solves each position made
+	 */
+	private void fill(int cell, int remaining)
+	{
+		BoardState board = stack[0];
+		if (cell == BoardState.SIZE - 2)
+		{
+			board.setCell(cell, remaining);
+			solve(0);
+			return;
+		}
+		if (board.isStore(cell))
+		{
+			fill(cell + 1, remaining);
+			return;
+		}
+		for (int v = 0; v <= remaining; v++)
+		{
+			board.setCell(cell, v);
+			fill(cell + 1, remaining - v);
+		}
+	}
+
+	/**
+	 * Finds the margin player 1 wins the rest of the game by on the
+	 * board at a depth of the stack. The board's mancalas are empty.
+	 */
+	private int solve(int depth)
+	{
+		BoardState board = stack[depth];
+		int rank = (int) index.rank(board, 0, board.stonesInPits());
+		if (values[rank] != UNKNOWN)
+		{
+			return values[rank];
+		}
+
+		int mine = board.getSideTotal(0);
+		int theirs = board.getSideTotal(1);
+		int best;
+		if (mine == 0 || theirs == 0)
+		{
+			// The game is already over, each side keeps its own stones
+			best = mine - theirs;
+		}
+		else
+		{
+			best = -Byte.MAX_VALUE;
+			BoardState child = stack[depth + 1];
+			for (long moves = board.getLegalMoves(0); moves != 0; moves &= moves - 1)
+			{
+				int pit = Long.numberOfTrailingZeros(moves);
+				child.copyFrom(board);
+				int result = child.play(0, pit);
+				int value = child.getStore(0) - child.getStore(1);
+				if ((result & BoardState.GAME_OVER) == 0)
+				{
+					child.setCell(child.storeIndex(0), 0);
+					child.setCell(child.storeIndex(1), 0);
+					if ((result & BoardState.FREE_TURN) != 0)
+					{
+						value += solve(depth + 1);
+					}
+					else
+					{
+						rotate(child);
+						value -= solve(depth + 1);
+					}
+				}
+				best = Math.max(best, value);
+			}
+		}
+		values[rank] = (byte) best;
+		return best;
+	}
+
+	/**
+	 * Swaps the two sides of a board so player 2 becomes player 1
+	 */
+	private static void rotate(BoardState board)
+	{
+		for (int pit = 0; pit < BoardState.PITS; pit++)
+		{
+			int a = board.index(0, pit);
+			int b = board.index(1, pit);
+			int temp = board.getCell(a);
+			board.setCell(a, board.getCell(b));
+			board.setCell(b, temp);
+		}
+	}
+
+	/**
+	 * Writes the tables to a file EndgameDatabase can open
+	 * @param file the path of the file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(String file) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(EndgameDatabase.HEADER);
+		header.putInt(EndgameDatabase.MAGIC);
+		header.putInt(EndgameDatabase.VERSION);
+		header.putInt(BoardState.PITS);
+		header.putInt(index.getMaxStones());
+		header.flip();
+		try (FileChannel channel = FileChannel.open(Paths.get(file),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			ByteBuffer body = ByteBuffer.wrap(values);
+			while (header.hasRemaining() || body.hasRemaining())
+			{
+				channel.write(new ByteBuffer[] { header, body });
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		int maxStones = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+		String file = args.length > 1 ? args[1] : "endgame.db";
+
+		long start = System.nanoTime();
+		EndgameGenerator generator = new EndgameGenerator(maxStones);
+		generator.generate();
+		generator.write(file);
+		System.out.printf("Solved %d positions with up to %d stones in %.1f s, wrote %s%n",
+				generator.index.size(), maxStones, (System.nanoTime() - start) / 1e9, file);
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ * Numbers every way of spreading up to a fixed number of stones over
+ * the pits of a board, so a position can be used as an index into the
+ * endgame tables. Positions are ordered by the number of stones in the
+ * pits, then by the pits' counts. The mancalas are not part of the
+ * index, because the stones in them no longer affect the game.
+ *
+ * The pits are read from the point of view of the player to move: his
+ * pits first, then his opponent's, so one table serves both players.
+ * @author Team7
+ *
+ */
+public class EndgameIndex
+{
+	private static final int CELLS = BoardState.PLAYERS * BoardState.PITS;
+
+	private final int maxStones;
+	private final long[] offsets;
+	private final long[][][] below;
+
+	/**
+	 * Constructs the index of every position with up to maxStones in pits
+	 * @param maxStones the most stones left in the pits
+	 */
+	public EndgameIndex(int maxStones)
+	{
+		this.maxStones = maxStones;
+		long[][] ways = new long[CELLS + 1][maxStones + 1];
+		ways[0][0] = 1;
+		for (int m = 1; m <= CELLS; m++)
+		{
+			for (int r = 0; r <= maxStones; r++)
+			{
+				// The first of m pits holds t stones, the rest hold r - t
+				for (int t = 0; t <= r; t++)
+				{
+					ways[m][r] += ways[m - 1][r - t];
+				}
+			}
+		}
+
+		offsets = new long[maxStones + 2];
+		for (int k = 0; k <= maxStones; k++)
+		{
+			offsets[k + 1] = offsets[k] + ways[CELLS][k];
+		}
+
+		// below[m][r][v]: positions that come before a pit holding v of
+		// the r stones left to spread over m pits
+		below = new long[CELLS + 1][maxStones + 1][maxStones + 2];
+		for (int m = 1; m <= CELLS; m++)
+		{
+			for (int r = 0; r <= maxStones; r++)
+			{
+				for (int v = 1; v <= r + 1; v++)
+				{
+					below[m][r][v] = below[m][r][v - 1] + ways[m - 1][r - v + 1];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of positions in the index
+	 * @return the size of a table
+	 */
+	public long size()
+	{
+		return offsets[maxStones + 1];
+	}
+
+	/**
+	 * Gets the most stones in pits the index covers
+	 * @return the stone limit
+	 */
+	public int getMaxStones()
+	{
+		return maxStones;
+	}
+
+	/**
+	 * Gets the index of a board
+	 * @param board a board with no more than maxStones in its pits
+	 * @param player the player to move
+	 * @param stones the number of stones in the pits
+	 * @return the position's index
+	 */
+	public long rank(BoardState board, int player, int stones)
+	{
+		long rank = offsets[stones];
+		int r = stones;
+		int m = CELLS;
+		for (int side = 0; side < BoardState.PLAYERS; side++)
+		{
+			int start = board.index(player, 0);
+			for (int pit = 0; pit < BoardState.PITS && m > 1; pit++)
+			{
+				int v = board.getCell(start + pit);
+				rank += below[m][r][v];
+				r -= v;
+				m--;
+			}
+			player = board.nextPlayer(player);
+		}
+		return rank;
+	}
+}
@@ -0,0 +1,311 @@
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * Delivers a game's change and move events to its listeners. The event
+ * objects are made once and reused, and listeners are kept in
+ * copy-on-write lists, so they can be added or removed from any thread
+ * while events are being delivered.
+ *
+ * By default events are delivered on the thread that makes the move.
+ * In asynchronous mode they are queued and delivered in batches by a
+ * background thread, so slow listeners do not hold up the game. Moves
+ * are queued as packed integers and delivered in order; state changes
+ * that happen before the background thread catches up are merged into
+ * a single change event.
+ * @author Team7
+ */
+public class EventDispatcher
+{
+	private static final int FIELDS = 5;
+	private static final int INITIAL_MOVES = 64;
+
+	private final CopyOnWriteArrayList<ChangeListener> changeListeners;
+	private final CopyOnWriteArrayList<MoveListener> moveListeners;
+	private final ChangeEvent changeEvent;
+	private final MoveEvent moveEvent;
+
+	private final Object lock = new Object();
+	private int[] pending;
+	private int[] draining;
+	private int pendingMoves;
+	private boolean changed;
+	private boolean running;
+	private volatile Thread worker;
+
+	/**
+	 * Constructs a dispatcher
+	 * @param source the object the events come from
+	 */
+	public EventDispatcher(Object source)
+	{
+		changeListeners = new CopyOnWriteArrayList<ChangeListener>();
+		moveListeners = new CopyOnWriteArrayList<MoveListener>();
+		changeEvent = new ChangeEvent(source);
+		moveEvent = new MoveEvent(source);
+	}
+
+	/**
+	 * Adds a listener for changes of the game's state
+	 * @param listener the listener
+	 */
+	public void addChangeListener(ChangeListener listener)
+	{
+		changeListeners.add(listener);
+	}
+
+	/**
+	 * Removes a change listener
+	 * @param listener the listener
+	 */
+	public void removeChangeListener(ChangeListener listener)
+	{
+		changeListeners.remove(listener);
+	}
+
+	/**
+	 * Adds a listener for the moves made
+	 * @param listener the listener
+	 */
+	public void addMoveListener(MoveListener listener)
+	{
+		moveListeners.add(listener);
+	}
+
+	/**
+	 * Removes a move listener
+	 * @param listener the listener
+	 */
+	public void removeMoveListener(MoveListener listener)
+	{
+		moveListeners.remove(listener);
+	}
+
+	/**
+	 * Tells the change listeners that the game's state changed
+	 */
+	public void fireStateChanged()
+	{
+		// The mode is checked under the lock, so an event cannot be queued
+		// after the queues were last drained
+		synchronized (lock)
+		{
+			if (worker != null)
+			{
+				changed = true;
+				lock.notifyAll();
+				return;
+			}
+		}
+		for (ChangeListener listener : changeListeners)
+		{
+			listener.stateChanged(changeEvent);
+		}
+	}
+
+	/**
+	 * Tells the move listeners about a move
+	 * @param player the player who moved
+	 * @param pit the pit picked up
+	 * @param stonesSown the number of stones picked up
+	 * @param captured the number of stones captured, or 0
+	 * @param flags a combination of BoardState.FREE_TURN, CAPTURE and GAME_OVER
+	 */
+	public void fireMove(int player, int pit, int stonesSown, int captured, int flags)
+	{
+		if (moveListeners.isEmpty())
+		{
+			return;
+		}
+		synchronized (lock)
+		{
+			if (worker != null)
+			{
+				int offset = pendingMoves * FIELDS;
+				if (offset == pending.length)
+				{
+					// The listeners are falling behind, make room rather than wait
+					pending = Arrays.copyOf(pending, pending.length * 2);
+				}
+				pending[offset] = player;
+				pending[offset + 1] = pit;
+				pending[offset + 2] = stonesSown;
+				pending[offset + 3] = captured;
+				pending[offset + 4] = flags;
+				pendingMoves++;
+				lock.notifyAll();
+				return;
+			}
+		}
+		moveEvent.set(player, pit, stonesSown, captured, flags);
+		for (MoveListener listener : moveListeners)
+		{
+			listener.moveMade(moveEvent);
+		}
+	}
+
+	/**
+	 * Switches between delivering events on the moving thread and on
+	 * a background thread. Switching back delivers every queued event
+	 * before returning, including any queued while the background
+	 * thread was stopping.
+	 * @param asynchronous whether to deliver events in the background
+	 */
+	public void setAsynchronous(boolean asynchronous)
+	{
+		synchronized (lock)
+		{
+			if (asynchronous == (worker != null))
+			{
+				return;
+			}
+			if (asynchronous)
+			{
+				// The queues are made on first use, since a server may hold
+				// many games that never deliver in the background
+				if (pending == null)
+				{
+					pending = new int[INITIAL_MOVES * FIELDS];
+					draining = new int[INITIAL_MOVES * FIELDS];
+				}
+				running = true;
+				Thread thread = new Thread(this::deliver, "model-events");
+				thread.setDaemon(true);
+				worker = thread;
+				thread.start();
+				return;
+			}
+			running = false;
+			lock.notifyAll();
+		}
+
+		Thread thread = worker;
+		try
+		{
+			thread.join();
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		// Events fired while the worker was stopping are still queued,
+		// and more are queued until worker is cleared with the queues empty
+		while (true)
+		{
+			synchronized (lock)
+			{
+				if (pendingMoves == 0 && !changed)
+				{
+					worker = null;
+					return;
+				}
+			}
+			deliverBatch();
+		}
+	}
+
+	/**
+	 * Checks if events are delivered in the background
+	 * @return whether the dispatcher is asynchronous
+	 */
+	public boolean isAsynchronous()
+	{
+		return worker != null;
+	}
+
+	/**
+	 * Delivers queued events in batches until asynchronous mode ends
+	 */
+	private void deliver()
+	{
+		while (true)
+		{
+			synchronized (lock)
+			{
+				while (running && pendingMoves == 0 && !changed)
+				{
+					try
+					{
+						lock.wait();
+					}
+					catch (InterruptedException ex)
+					{
+						return;
+					}
+				}
+				if (!running)
+				{
+					// The thread switching back delivers whatever is left
+					return;
+				}
+			}
+			deliverBatch();
+		}
+	}
+
+	/**
+	 * Takes every queued event and delivers them, on the background
+	 * thread or on the thread switching back from it
+	 */
+	private void deliverBatch()
+	{
+		int moves;
+		boolean change;
+		synchronized (lock)
+		{
+			// Take the whole batch and give the game the empty buffer
+			int[] batch = pending;
+			pending = draining;
+			draining = batch;
+			moves = pendingMoves;
+			change = changed;
+			pendingMoves = 0;
+			changed = false;
+		}
+
+		for (int i = 0; i < moves; i++)
+		{
+			int offset = i * FIELDS;
+			moveEvent.set(draining[offset], draining[offset + 1], draining[offset + 2],
+					draining[offset + 3], draining[offset + 4]);
+			for (MoveListener listener : moveListeners)
+			{
+				try
+				{
+					listener.moveMade(moveEvent);
+				}
+				catch (RuntimeException ex)
+				{
+					report(ex);
+				}
+			}
+		}
+		if (change)
+		{
+			for (ChangeListener listener : changeListeners)
+			{
+				try
+				{
+					listener.stateChanged(changeEvent);
+				}
+				catch (RuntimeException ex)
+				{
+					report(ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reports a listener's failure without stopping the background thread
+	 */
+	private static void report(RuntimeException ex)
+	{
+		Thread thread = Thread.currentThread();
+		thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+	}
+}
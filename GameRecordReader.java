@@ -0,0 +1,189 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams games back from a file written by GameRecordWriter. Only a
+ * small buffer of the file is in memory at a time, so files of any size
+ * can be read.
+ *
+ * The file starts with a magic number and a version. Each game then has
+ * an eight byte header: the number of players, the number of pits per
+ * player, the stones per pit as a short and the number of moves as an
+ * int. The moves follow, one byte each, with the pit in the low six bits
+ * and the player in the top two.
+ * @author Team7
+ */
+public class GameRecordReader implements Closeable
+{
+	/** Marks the start of a record file */
+	public static final int MAGIC = 0x4D475243;
+	/** The file format version */
+	public static final int VERSION = 1;
+	/** The size of each game's header in bytes */
+	public static final int GAME_HEADER = 8;
+	/** The most players a recorded game can have */
+	public static final int MAX_PLAYERS = 4;
+	/** The most pits per player a recorded game can have */
+	public static final int MAX_PITS = 64;
+	/** The most stones per pit a recorded game can start with */
+	public static final int MAX_STONES = 0xFFFF;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final String file;
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private int players;
+	private int pits;
+	private int stones;
+	private int moves;
+	private int unread;
+
+	/**
+	 * Opens a record file
+	 * @param file the path of the file
+	 * @throws IOException if the file cannot be read or is not a record file
+	 */
+	public GameRecordReader(String file) throws IOException
+	{
+		this.file = file;
+		channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		buffer.limit(0);
+		if (!fill(8) || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+		{
+			channel.close();
+			throw new IOException(file + " is not a game record file.");
+		}
+	}
+
+	/**
+	 * Moves on to the next game, skipping any moves of the current game
+	 * that were not read
+	 * @return false if there are no more games
+	 * @throws IOException if the file cannot be read or is cut short
+	 */
+	public boolean nextGame() throws IOException
+	{
+		while (unread > 0)
+		{
+			if (!fill(1))
+			{
+				throw new IOException(file + " is truncated.");
+			}
+			int n = Math.min(unread, buffer.remaining());
+			buffer.position(buffer.position() + n);
+			unread -= n;
+		}
+		if (!fill(GAME_HEADER))
+		{
+			if (buffer.hasRemaining())
+			{
+				throw new IOException(file + " is truncated.");
+			}
+			return false;
+		}
+		players = buffer.get();
+		pits = buffer.get();
+		stones = buffer.getShort() & 0xFFFF;
+		moves = buffer.getInt();
+		unread = moves;
+		return true;
+	}
+
+	/**
+	 * Reads the next move of the current game
+	 * @return the move's byte from 0 to 255, or -1 after the last move
+	 * @throws IOException if the file cannot be read or is cut short
+	 */
+	public int nextMove() throws IOException
+	{
+		if (unread == 0)
+		{
+			return -1;
+		}
+		if (!fill(1))
+		{
+			throw new IOException(file + " is truncated.");
+		}
+		unread--;
+		return buffer.get() & 0xFF;
+	}
+
+	/**
+	 * Gets the player of a move read by nextMove
+	 * @param move a move's byte
+	 * @return the player who moved
+	 */
+	public static int player(int move)
+	{
+		return move >>> 6;
+	}
+
+	/**
+	 * Gets the pit of a move read by nextMove
+	 * @param move a move's byte
+	 * @return the pit picked up
+	 */
+	public static int pit(int move)
+	{
+		return move & 0x3F;
+	}
+
+	/**
+	 * Gets the number of players of the current game
+	 * @return the number of players
+	 */
+	public int getPlayers() { return players; }
+
+	/**
+	 * Gets the number of pits per player of the current game
+	 * @return the number of pits
+	 */
+	public int getPits() { return pits; }
+
+	/**
+	 * Gets the number of stones each pit started with in the current game
+	 * @return the number of stones per pit
+	 */
+	public int getStones() { return stones; }
+
+	/**
+	 * Gets the number of moves of the current game
+	 * @return the move count
+	 */
+	public int getMoveCount() { return moves; }
+
+	/**
+	 * Makes sure some bytes are in the buffer, reading more of the file
+	 * if needed
+	 * @return false if the file ended first
+	 */
+	private boolean fill(int bytes) throws IOException
+	{
+		if (buffer.remaining() >= bytes)
+		{
+			return true;
+		}
+		buffer.compact();
+		while (buffer.position() < bytes)
+		{
+			if (channel.read(buffer) < 0)
+			{
+				break;
+			}
+		}
+		buffer.flip();
+		return buffer.remaining() >= bytes;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+}
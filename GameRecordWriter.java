@@ -0,0 +1,125 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes finished games to a record file that GameRecordReader can
+ * stream back. Each game is a short header with the size of the board
+ * and the number of stones, followed by one byte per move. The bytes go
+ * through a direct buffer to a file channel, so writing a game does not
+ * allocate. Any number of threads can write games to the same file.
+ * @author Team7
+ */
+public class GameRecordWriter implements Closeable
+{
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private long games;
+
+	/**
+	 * Creates a record file, replacing any file already there
+	 * @param file the path of the file
+	 * @throws IOException if the file cannot be written
+	 */
+	public GameRecordWriter(String file) throws IOException
+	{
+		channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		buffer.putInt(GameRecordReader.MAGIC);
+		buffer.putInt(GameRecordReader.VERSION);
+	}
+
+	/**
+	 * Packs a move into the byte it is recorded as
+	 * @param player the player who moved, below GameRecordReader.MAX_PLAYERS
+	 * @param pit the pit picked up, below GameRecordReader.MAX_PITS
+	 * @return the move's byte
+	 */
+	public static byte encode(int player, int pit)
+	{
+		return (byte) (player << 6 | pit);
+	}
+
+	/**
+	 * Adds a game to the file
+	 * @param players the number of players
+	 * @param pits the number of pits per player
+	 * @param stones the number of stones each pit started with
+	 * @param moves the moves made, packed by encode
+	 * @param count the number of moves
+	 * @throws IOException if the file cannot be written
+	 */
+	public synchronized void writeGame(int players, int pits, int stones, byte[] moves,
+			int count) throws IOException
+	{
+		if (players > GameRecordReader.MAX_PLAYERS || pits > GameRecordReader.MAX_PITS
+				|| stones > GameRecordReader.MAX_STONES)
+		{
+			throw new IllegalArgumentException("The board is too large to record.");
+		}
+		if (buffer.remaining() < GameRecordReader.GAME_HEADER)
+		{
+			flush();
+		}
+		buffer.put((byte) players);
+		buffer.put((byte) pits);
+		buffer.putShort((short) stones);
+		buffer.putInt(count);
+		for (int offset = 0; offset < count;)
+		{
+			if (!buffer.hasRemaining())
+			{
+				flush();
+			}
+			int n = Math.min(buffer.remaining(), count - offset);
+			buffer.put(moves, offset, n);
+			offset += n;
+		}
+		games++;
+	}
+
+	/**
+	 * Gets the number of games written
+	 * @return the game count
+	 */
+	public synchronized long getGames()
+	{
+		return games;
+	}
+
+	/**
+	 * Writes out the buffered bytes
+	 */
+	private void flush() throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Writes out the last games and closes the file
+	 * @throws IOException if the file cannot be written
+	 */
+	@Override
+	public synchronized void close() throws IOException
+	{
+		try
+		{
+			flush();
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,70 @@
+import java.io.IOException;
+
+/**
+ * Replays every game of a record file through Model, checking that each
+ * move was legal and that every game ran to its end, and reports how
+ * the games ended and how fast they were replayed. The file is streamed,
+ * so it may hold any number of games.
+ *
+ * Usage: java GameReplay [file]
+ * @author Team7
+ */
+public class GameReplay
+{
+	public static void main(String[] args) throws IOException
+	{
+		String file = args.length > 0 ? args[0] : "games.rec";
+
+		long games = 0;
+		long moves = 0;
+		long draws = 0;
+		long invalid = 0;
+		long[] wins = new long[GameRecordReader.MAX_PLAYERS];
+		long start = System.nanoTime();
+		try (GameRecordReader reader = new GameRecordReader(file))
+		{
+			while (reader.nextGame())
+			{
+				games++;
+				Model model = new Model(reader.getPlayers(), reader.getPits(),
+						reader.getStones(), 1);
+				boolean valid = true;
+				for (int move = reader.nextMove(); move >= 0 && valid; move = reader.nextMove())
+				{
+					moves++;
+					valid = model.isLegalMove(GameRecordReader.player(move),
+							GameRecordReader.pit(move))
+							&& model.make(GameRecordReader.pit(move)) != BoardState.ILLEGAL;
+				}
+				if (!valid || !model.isGameEnd())
+				{
+					invalid++;
+				}
+				else if (model.getActive() < 0)
+				{
+					draws++;
+				}
+				else
+				{
+					wins[model.getActive()]++;
+				}
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("replayed %d games, %d moves in %.2f s: %.0f games/s, %.0f moves/s%n",
+				games, moves, seconds, games / seconds, moves / seconds);
+		for (int i = 0; i < wins.length; i++)
+		{
+			if (wins[i] > 0)
+			{
+				System.out.printf("player %d wins: %d%n", i + 1, wins[i]);
+			}
+		}
+		System.out.printf("draws: %d%ninvalid or unfinished: %d%n", draws, invalid);
+		if (invalid > 0)
+		{
+			System.exit(1);
+		}
+	}
+}
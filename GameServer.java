@@ -0,0 +1,518 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts games of mancala for clients over TCP, without a window. Every
+ * connection is a session with its own Model, played hot seat: the
+ * client moves for whichever player is active. Connections are shared
+ * out over a few event loops, each a thread with its own selector, so
+ * thousands of sessions need only a handful of threads. A session takes
+ * about 3 KB of heap: 1152 bytes of buffers, plus its Model and the
+ * Model's undo history.
+ *
+ * The protocol is one ASCII command per line, each answered by one line:
+ * <pre>
+ * NEW [stones [players pits]]  OK flags active legal
+ * MOVE pit                     OK flags active legal, or ERR
+ * UNDO                         OK flags active legal, or ERR
+ * REDO                         OK flags active legal, or ERR
+ * STATE                        STATE active over cells...
+ * STATS [GC]                   STATS sessions games moves heap
+ * QUIT                         BYE, then the connection is closed
+ * </pre>
+ * flags is a combination of BoardState.FREE_TURN, CAPTURE and GAME_OVER,
+ * active is the player to move, or the winner once the game is over, and
+ * legal is Model.getLegalMoves. STATS GC collects garbage before measuring
+ * the heap, so the figure is the memory in use.
+ *
+ * Usage: java GameServer [port] [event loops] [address]
+ * @author Team7
+ */
+public class GameServer
+{
+	/** The port used when none is given */
+	public static final int DEFAULT_PORT = 7777;
+
+	private static final int MAX_STONES = 99;
+	private static final int MAX_PLAYERS = 4;
+	private static final int MAX_PITS = 16;
+	private static final int LINE_MAX = 128;
+	private static final int REPLY_MAX = 512;
+	private static final int OUT_SIZE = 2 * REPLY_MAX;
+	private static final int BACKLOG = 4096;
+
+	private final ServerSocketChannel server;
+	private final EventLoop[] loops;
+	private final AtomicInteger sessions = new AtomicInteger();
+	private final AtomicLong games = new AtomicLong();
+	private final AtomicLong moves = new AtomicLong();
+
+	/**
+	 * Opens the server socket and starts the event loops
+	 * @param address the address to listen on
+	 * @param eventLoops the number of event loop threads
+	 * @throws IOException if the socket cannot be opened
+	 */
+	public GameServer(InetSocketAddress address, int eventLoops) throws IOException
+	{
+		server = ServerSocketChannel.open();
+		server.bind(address, BACKLOG);
+		loops = new EventLoop[eventLoops];
+		for (int i = 0; i < eventLoops; i++)
+		{
+			loops[i] = new EventLoop();
+			Thread thread = new Thread(loops[i], "server-loop-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Accepts connections and hands them to the event loops in turn,
+	 * until the server socket is closed. A connection that fails while
+	 * being set up is reported and dropped.
+	 */
+	public void serve()
+	{
+		for (int next = 0; server.isOpen(); next = (next + 1) % loops.length)
+		{
+			SocketChannel channel = null;
+			try
+			{
+				channel = server.accept();
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+			}
+			catch (IOException ex)
+			{
+				if (!server.isOpen())
+				{
+					// Closed by close()
+					return;
+				}
+				report(ex);
+				discard(channel);
+				continue;
+			}
+			loops[next].add(channel);
+		}
+	}
+
+	/**
+	 * Stops accepting connections and closes every session
+	 * @throws IOException if the server socket cannot be closed
+	 */
+	public void close() throws IOException
+	{
+		server.close();
+		for (EventLoop loop : loops)
+		{
+			loop.running = false;
+			loop.selector.wakeup();
+		}
+	}
+
+	/**
+	 * One connection and its game
+	 */
+	private static class Session
+	{
+		final SocketChannel channel;
+		final ByteBuffer in = ByteBuffer.allocate(LINE_MAX);
+		// Kept ready for writing: the bytes not yet sent are before the position
+		final ByteBuffer out = ByteBuffer.allocate(OUT_SIZE);
+		Model game;
+		boolean closing;
+
+		Session(SocketChannel channel)
+		{
+			this.channel = channel;
+		}
+	}
+
+	/**
+	 * A thread that serves its share of the sessions with a selector
+	 */
+	private class EventLoop implements Runnable
+	{
+		final Selector selector;
+		final ConcurrentLinkedQueue<SocketChannel> added = new ConcurrentLinkedQueue<SocketChannel>();
+		final StringBuilder reply = new StringBuilder(REPLY_MAX);
+		volatile boolean running = true;
+
+		EventLoop() throws IOException
+		{
+			selector = Selector.open();
+		}
+
+		/**
+		 * Hands a new connection to this loop
+		 */
+		void add(SocketChannel channel)
+		{
+			added.add(channel);
+			selector.wakeup();
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				while (running)
+				{
+					selector.select();
+					for (SocketChannel channel = added.poll(); channel != null; channel = added.poll())
+					{
+						try
+						{
+							channel.register(selector, SelectionKey.OP_READ, new Session(channel));
+							sessions.incrementAndGet();
+						}
+						catch (IOException ex)
+						{
+							// Only this connection is lost
+							report(ex);
+							discard(channel);
+						}
+					}
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext())
+					{
+						SelectionKey key = keys.next();
+						keys.remove();
+						try
+						{
+							handle(key);
+						}
+						catch (IOException ex)
+						{
+							close(key);
+						}
+					}
+				}
+			}
+			catch (IOException ex)
+			{
+				// The selector is broken, so none of its sessions can go on
+				report(ex);
+			}
+			finally
+			{
+				closeAll();
+			}
+		}
+
+		/**
+		 * Reads what a session sent, answers any whole lines and sends
+		 * what it can of the answers
+		 */
+		private void handle(SelectionKey key) throws IOException
+		{
+			Session session = (Session) key.attachment();
+			if (key.isReadable() && session.channel.read(session.in) < 0)
+			{
+				close(key);
+				return;
+			}
+			answer(session);
+			if (session.out.position() > 0)
+			{
+				session.out.flip();
+				session.channel.write(session.out);
+				session.out.compact();
+			}
+
+			boolean pending = session.out.position() > 0;
+			if (session.closing && !pending)
+			{
+				close(key);
+				return;
+			}
+			// Stop reading while the client is not taking its answers
+			int ops = pending ? SelectionKey.OP_WRITE
+					: session.closing ? 0 : SelectionKey.OP_READ;
+			if (key.interestOps() != ops)
+			{
+				key.interestOps(ops);
+			}
+			if (!pending && lineIn(session))
+			{
+				// Lines were left waiting for room, answer them now
+				handle(key);
+			}
+		}
+
+		/**
+		 * Answers the whole lines in a session's input while there is room
+		 * for the answers
+		 */
+		private void answer(Session session)
+		{
+			ByteBuffer in = session.in;
+			while (!session.closing && session.out.remaining() >= REPLY_MAX)
+			{
+				int end = -1;
+				for (int i = 0; i < in.position(); i++)
+				{
+					if (in.get(i) == '\n')
+					{
+						end = i;
+						break;
+					}
+				}
+				if (end < 0)
+				{
+					if (!in.hasRemaining())
+					{
+						reply.setLength(0);
+						reply.append("ERR line too long");
+						send(session);
+						session.closing = true;
+					}
+					return;
+				}
+
+				String line = new String(in.array(), 0, end, StandardCharsets.US_ASCII);
+				in.flip();
+				in.position(end + 1);
+				in.compact();
+				reply.setLength(0);
+				execute(session, line.trim());
+				send(session);
+			}
+		}
+
+		/**
+		 * Checks if a session has a whole line waiting
+		 */
+		private boolean lineIn(Session session)
+		{
+			for (int i = 0; i < session.in.position(); i++)
+			{
+				if (session.in.get(i) == '\n')
+				{
+					return !session.closing;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Runs a command, leaving the answer in reply
+		 */
+		private void execute(Session session, String line)
+		{
+			String[] words = line.split("\\s+");
+			String command = words[0].toUpperCase();
+			try
+			{
+				switch (command)
+				{
+				case "NEW":
+					// Players and pits come together or not at all
+					if (words.length == 3 || words.length > 4)
+					{
+						reply.append("ERR expected NEW [stones [players pits]]");
+						return;
+					}
+					int stones = words.length > 1 ? Integer.parseInt(words[1]) : 4;
+					int players = words.length == 4 ? Integer.parseInt(words[2]) : BoardState.PLAYERS;
+					int pits = words.length == 4 ? Integer.parseInt(words[3]) : BoardState.PITS;
+					if (stones < 1 || stones > MAX_STONES || players < 2 || players > MAX_PLAYERS
+							|| pits < 1 || pits > MAX_PITS)
+					{
+						reply.append("ERR board out of range");
+						return;
+					}
+					session.game = new Model(players, pits, stones, 3);
+					games.incrementAndGet();
+					status(session.game, 0);
+					return;
+				case "MOVE":
+					if (session.game == null)
+					{
+						reply.append("ERR no game");
+						return;
+					}
+					int flags = words.length > 1 ? session.game.make(Integer.parseInt(words[1]))
+							: BoardState.ILLEGAL;
+					if (flags == BoardState.ILLEGAL)
+					{
+						reply.append("ERR illegal move");
+						return;
+					}
+					moves.incrementAndGet();
+					status(session.game, flags);
+					return;
+				case "UNDO":
+					if (session.game == null || !session.game.isUndoable())
+					{
+						reply.append("ERR cannot undo");
+						return;
+					}
+					session.game.undo();
+					status(session.game, 0);
+					return;
+				case "REDO":
+					if (session.game == null || !session.game.isRedoable())
+					{
+						reply.append("ERR cannot redo");
+						return;
+					}
+					session.game.redo();
+					status(session.game, 0);
+					return;
+				case "STATE":
+					if (session.game == null)
+					{
+						reply.append("ERR no game");
+						return;
+					}
+					reply.append("STATE ").append(session.game.getActive())
+							.append(session.game.isGameEnd() ? " 1" : " 0");
+					for (int i = 0; i < session.game.getCellCount(); i++)
+					{
+						reply.append(' ').append(session.game.getCell(i));
+					}
+					return;
+				case "STATS":
+					if (words.length > 1 && words[1].equalsIgnoreCase("GC"))
+					{
+						System.gc();
+					}
+					Runtime runtime = Runtime.getRuntime();
+					reply.append("STATS ").append(sessions.get()).append(' ').append(games.get())
+							.append(' ').append(moves.get()).append(' ')
+							.append(runtime.totalMemory() - runtime.freeMemory());
+					return;
+				case "QUIT":
+					reply.append("BYE");
+					session.closing = true;
+					return;
+				default:
+					reply.append("ERR unknown command");
+				}
+			}
+			catch (NumberFormatException ex)
+			{
+				reply.append("ERR not a number");
+			}
+		}
+
+		/**
+		 * Writes the answer to a game command
+		 */
+		private void status(Model game, int flags)
+		{
+			reply.append("OK ").append(flags).append(' ').append(game.getActive()).append(' ')
+					.append(game.getLegalMoves());
+		}
+
+		/**
+		 * Adds the reply, as a line, to a session's output
+		 */
+		private void send(Session session)
+		{
+			int length = Math.min(reply.length(), REPLY_MAX - 1);
+			for (int i = 0; i < length; i++)
+			{
+				session.out.put((byte) reply.charAt(i));
+			}
+			session.out.put((byte) '\n');
+		}
+
+		/**
+		 * Closes a session's connection
+		 */
+		private void close(SelectionKey key)
+		{
+			key.cancel();
+			try
+			{
+				key.channel().close();
+			}
+			catch (IOException ex)
+			{
+				// Already gone
+			}
+			sessions.decrementAndGet();
+		}
+
+		/**
+		 * Closes every session of this loop and the selector
+		 */
+		private void closeAll()
+		{
+			for (SelectionKey key : selector.keys())
+			{
+				close(key);
+			}
+			for (SocketChannel channel = added.poll(); channel != null; channel = added.poll())
+			{
+				discard(channel);
+			}
+			try
+			{
+				selector.close();
+			}
+			catch (IOException ex)
+			{
+				// Nothing left to release
+			}
+		}
+	}
+
+	/**
+	 * Closes a connection that is not part of a session
+	 * @param channel the connection, or null
+	 */
+	private static void discard(SocketChannel channel)
+	{
+		if (channel == null)
+		{
+			return;
+		}
+		try
+		{
+			channel.close();
+		}
+		catch (IOException ex)
+		{
+			// Already gone
+		}
+	}
+
+	/**
+	 * Reports a failure without stopping the server
+	 * @param ex the failure
+	 */
+	private static void report(IOException ex)
+	{
+		Thread thread = Thread.currentThread();
+		thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int eventLoops = args.length > 1 ? Integer.parseInt(args[1])
+				: Math.max(1, Runtime.getRuntime().availableProcessors());
+		String host = args.length > 2 ? args[2] : "127.0.0.1";
+
+		GameServer server = new GameServer(new InetSocketAddress(host, port), eventLoops);
+		System.out.printf("serving mancala on %s:%d with %d event loops%n", host, port,
+				eventLoops);
+		server.serve();
+	}
+}
@@ -0,0 +1,33 @@
+/**
+ * A strategy that plays the move that puts the most stones in its
+ * mancala right away, preferring moves that give a free turn
+ * @author Team7
+ */
+public class GreedyStrategy implements Strategy
+{
+	private final BoardState scratch = new BoardState(0);
+
+	@Override
+	public int choose(BoardState board, int player)
+	{
+		int chosen = -1;
+		int best = Integer.MIN_VALUE;
+		for (long moves = board.getLegalMoves(player); moves != 0; moves &= moves - 1)
+		{
+			int pit = Long.numberOfTrailingZeros(moves);
+			scratch.copyFrom(board);
+			int result = scratch.play(player, pit);
+			int gain = (scratch.getStore(player) - board.getStore(player)) * 2;
+			if ((result & BoardState.FREE_TURN) != 0)
+			{
+				gain++;
+			}
+			if (gain > best)
+			{
+				best = gain;
+				chosen = pit;
+			}
+		}
+		return chosen;
+	}
+}
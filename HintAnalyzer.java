@@ -0,0 +1,243 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * Scores every pit of the player to move on a background thread, for
+ * hints. Each pit is played and the position after it searched, one ply
+ * deeper each round, and the scores are shown on the board after every
+ * round until the position changes. Starting on a new position cancels
+ * the search of the old one. The thread and its engine are only made
+ * once hints are first asked for.
+ *
+ * Results reach the event dispatch thread through a single slot, so
+ * any that arrive while the board is drawing are merged, and the board
+ * is given new scores at most once per frame. The event dispatch thread
+ * only ever reads the slot and never waits for the analysis.
+ * @author Team7
+ */
+public class HintAnalyzer
+{
+	/** The score of a pit that cannot be played */
+	public static final int NO_SCORE = Integer.MIN_VALUE;
+
+	private static final int MAX_DEPTH = 32;
+	private static final int TABLE_MB = 8;
+	private static final int FRAME_MILLIS = 16;
+	private static final long FRAME_NANOS = FRAME_MILLIS * 1000000L;
+
+	/**
+	 * The scores of one round of analysis
+	 */
+	private static class Result
+	{
+		final long generation;
+		final int player;
+		final int[] scores;
+
+		Result(long generation, int player, int[] scores)
+		{
+			this.generation = generation;
+			this.player = player;
+			this.scores = scores;
+		}
+	}
+
+	private final Board board;
+	private SearchEngine engine;
+	private final AtomicReference<Result> latest = new AtomicReference<Result>();
+	private final Timer frame;
+	private final Object lock = new Object();
+	private BoardState position;
+	private int player;
+	private volatile long generation;
+	private long lastShown = System.nanoTime() - FRAME_NANOS;
+
+	/**
+	 * Constructs an analyzer that does nothing until it is given a
+	 * position
+	 * @param board the board to show the scores on
+	 */
+	public HintAnalyzer(Board board)
+	{
+		this.board = board;
+		frame = new Timer(FRAME_MILLIS, event -> show());
+		frame.setRepeats(false);
+	}
+
+	/**
+	 * Starts analysing a position, dropping any earlier one and clearing
+	 * its scores from the board, since they no longer apply. Called on
+	 * the event dispatch thread.
+	 * @param board the position, which the analyzer keeps
+	 * @param player the player to move
+	 */
+	public void analyze(BoardState board, int player)
+	{
+		if (engine == null)
+		{
+			engine = new SearchEngine(MAX_DEPTH, TABLE_MB);
+			Thread thread = new Thread(this::run, "hint-analysis");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			thread.start();
+		}
+		synchronized (lock)
+		{
+			position = board;
+			this.player = player;
+			generation++;
+			lock.notifyAll();
+		}
+		engine.stop();
+		this.board.setHints(-1, null);
+	}
+
+	/**
+	 * Stops analysing and clears the scores from the board. Called on
+	 * the event dispatch thread.
+	 */
+	public void cancel()
+	{
+		synchronized (lock)
+		{
+			position = null;
+			generation++;
+		}
+		if (engine != null)
+		{
+			engine.stop();
+		}
+		board.setHints(-1, null);
+	}
+
+	/**
+	 * Waits for positions and analyses them
+	 */
+	private void run()
+	{
+		while (true)
+		{
+			BoardState root;
+			int mover;
+			long task;
+			synchronized (lock)
+			{
+				while (position == null)
+				{
+					try
+					{
+						lock.wait();
+					}
+					catch (InterruptedException ex)
+					{
+						return;
+					}
+				}
+				root = position;
+				mover = player;
+				task = generation;
+			}
+
+			analyse(root, mover, task);
+			synchronized (lock)
+			{
+				// Nothing more to learn about this position
+				if (generation == task)
+				{
+					position = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Scores the pits of a position one ply deeper at a time until a
+	 * newer position arrives
+	 */
+	private void analyse(BoardState root, int mover, long task)
+	{
+		BoardState child = new BoardState(root);
+		int[] scores = new int[root.getPits()];
+		for (int depth = 1; depth <= MAX_DEPTH; depth++)
+		{
+			Arrays.fill(scores, NO_SCORE);
+			for (long legal = root.getLegalMoves(mover); legal != 0; legal &= legal - 1)
+			{
+				int pit = Long.numberOfTrailingZeros(legal);
+				child.copyFrom(root);
+				scores[pit] = score(child, mover, pit, depth - 1, task);
+				if (generation != task)
+				{
+					return;
+				}
+			}
+			publish(new Result(task, mover, scores.clone()));
+		}
+	}
+
+	/**
+	 * Plays a pit and searches the position after it
+	 * @return the expected mancala difference for the mover
+	 */
+	private int score(BoardState board, int mover, int pit, int depth, long task)
+	{
+		int result = board.play(mover, pit);
+		int next = (result & BoardState.FREE_TURN) != 0 ? mover : board.nextPlayer(mover);
+		// Forced moves are played out, the engine does not score them
+		while ((result & BoardState.GAME_OVER) == 0 && depth > 0
+				&& Long.bitCount(board.getLegalMoves(next)) == 1)
+		{
+			result = board.play(next, Long.numberOfTrailingZeros(board.getLegalMoves(next)));
+			next = (result & BoardState.FREE_TURN) != 0 ? next : board.nextPlayer(next);
+			depth--;
+		}
+		if ((result & BoardState.GAME_OVER) != 0 || depth == 0)
+		{
+			return board.getStore(mover) - board.getStore(board.nextPlayer(mover));
+		}
+		// A search can be cut short by a stop meant for the one before it
+		do
+		{
+			engine.searchToDepth(board, next, depth);
+		}
+		while (engine.getCompletedDepth() < depth && generation == task);
+		return next == mover ? engine.getScore() : -engine.getScore();
+	}
+
+	/**
+	 * Leaves a result for the event dispatch thread, waking it only if
+	 * it has no result waiting already
+	 */
+	private void publish(Result result)
+	{
+		if (latest.getAndSet(result) == null)
+		{
+			SwingUtilities.invokeLater(this::show);
+		}
+	}
+
+	/**
+	 * Puts the latest scores on the board, or waits for the next frame
+	 * if the board was given scores less than a frame ago
+	 */
+	private void show()
+	{
+		long wait = lastShown + FRAME_NANOS - System.nanoTime();
+		if (wait > 0)
+		{
+			frame.setInitialDelay((int) (wait / 1000000) + 1);
+			frame.restart();
+			return;
+		}
+		Result result = latest.getAndSet(null);
+		if (result == null || result.generation != generation)
+		{
+			return;
+		}
+		lastShown = System.nanoTime();
+		board.setHints(result.player, result.scores);
+	}
+}
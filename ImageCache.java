@@ -0,0 +1,122 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Images shared by every layout. Each file is decoded once and copied
+ * into the screen's own pixel format, and scaled copies are kept for
+ * each size asked for, so drawing one is a plain copy with no conversion
+ * or scaling. The time spent making each image is recorded so startup
+ * can be measured.
+ * @author Team7
+ *
+ */
+public class ImageCache
+{
+	private static final Map<String, Image> images = new ConcurrentHashMap<String, Image>();
+	private static final Map<String, Image> scaled = new ConcurrentHashMap<String, Image>();
+	private static final Map<String, Long> loadNanos = new ConcurrentHashMap<String, Long>();
+
+	private ImageCache()
+	{
+	}
+
+	/**
+	 * Gets an image file, decoding it on first use
+	 * @param path the path of the image file
+	 * @return the image in the screen's format
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Image load(String path) throws IOException
+	{
+		Image image = images.get(path);
+		if (image == null)
+		{
+			long start = System.nanoTime();
+			BufferedImage decoded = ImageIO.read(new File(path));
+			if (decoded == null)
+			{
+				throw new IOException(path + " is not an image.");
+			}
+			image = createImage(decoded.getWidth(), decoded.getHeight(),
+					decoded.getTransparency());
+			Graphics g = image.getGraphics();
+			g.drawImage(decoded, 0, 0, null);
+			g.dispose();
+			loadNanos.put(path, System.nanoTime() - start);
+			Image raced = images.putIfAbsent(path, image);
+			if (raced != null)
+			{
+				image = raced;
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Gets an image file scaled to a size, scaling it on first use
+	 * @param path the path of the image file
+	 * @param w the width
+	 * @param h the height
+	 * @return the scaled image in the screen's format
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Image load(String path, int w, int h) throws IOException
+	{
+		String key = path + '@' + w + 'x' + h;
+		Image image = scaled.get(key);
+		if (image == null)
+		{
+			Image source = load(path);
+			long start = System.nanoTime();
+			image = createImage(w, h, ((BufferedImage) source).getTransparency());
+			Graphics2D g = (Graphics2D) image.getGraphics();
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+					RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+			g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			g.drawImage(source, 0, 0, w, h, null);
+			g.dispose();
+			loadNanos.put(key, System.nanoTime() - start);
+			Image raced = scaled.putIfAbsent(key, image);
+			if (raced != null)
+			{
+				image = raced;
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Gets how long each image took to decode or scale
+	 * @return nanoseconds by path, scaled images as path@WxH
+	 */
+	public static Map<String, Long> getLoadTimes()
+	{
+		return Collections.unmodifiableMap(new TreeMap<String, Long>(loadNanos));
+	}
+
+	/**
+	 * Makes an empty image in the screen's pixel format
+	 * @param w the width
+	 * @param h the height
+	 * @param transparency one of Transparency.OPAQUE, BITMASK or TRANSLUCENT
+	 * @return the new image
+	 */
+	public static BufferedImage createImage(int w, int h, int transparency)
+	{
+		if (GraphicsEnvironment.isHeadless())
+		{
+			return new BufferedImage(w, h, transparency == Transparency.OPAQUE
+					? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+		}
+		return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+				.getDefaultConfiguration().createCompatibleImage(w, h, transparency);
+	}
+}
@@ -1,5 +1,7 @@
 import java.awt.*;
 import java.awt.geom.*;
+import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * This is the abstract class for Layout
@@ -8,10 +10,24 @@ import java.awt.geom.*;
  */
 public abstract class Layout
 {
-	
+	private static final int SPRITE_CACHE_SIZE = 512;
+	private static final int BUCKET = 16;
+	private static final Font HINT_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 11);
+	private static final Color HINT_BEST = new Color(40, 160, 60, 220);
+	private static final Color HINT_OTHER = new Color(0, 0, 0, 150);
+
 	protected Rectangle2D.Double[][] pitRects;
+	protected Rectangle2D.Double[] mRects;
 	protected int width;
 	protected int height;
+
+	private SpriteCache sprites;
+	private String background;
+	private Image scaledBackground;
+	private int[][] buckets;
+	private int columns;
+	private int rows;
+
 	/**
 	 * Constructor that creates the layout of the game
 	 * @param player the number of players
@@ -20,6 +36,17 @@ public abstract class Layout
 	public Layout(int player, int boardLength)
 	{
 		pitRects = new Rectangle2D.Double[player][boardLength];
+		mRects = new Rectangle2D.Double[player];
+	}
+
+	/**
+	 * Loads the images the layout draws with. This is called once, on
+	 * a background thread, before the layout is first drawn, so the
+	 * constructor stays cheap. A layout without images does nothing.
+	 * @throws IOException if an image cannot be read
+	 */
+	public void loadAssets() throws IOException
+	{
 	}
 
 	/**
@@ -49,6 +76,186 @@ public abstract class Layout
 		return pitRects; 
 	}
 
+	/**
+	 * Sets the image drawn behind the board, scaled to the board's size
+	 * @param path the path of the image file
+	 * @throws IOException if the file cannot be read
+	 */
+	protected void setBackgroundImage(String path) throws IOException
+	{
+		ImageCache.load(path);
+		background = path;
+		if (width > 0 && height > 0)
+		{
+			scaledBackground = ImageCache.load(path, width, height);
+		}
+	}
+
+	/**
+	 * Sets the image used to draw each stone
+	 * @param path the path of the image file
+	 * @throws IOException if the file cannot be read
+	 */
+	protected void setStoneImage(String path) throws IOException
+	{
+		sprites = new SpriteCache(ImageCache.load(path), SPRITE_CACHE_SIZE);
+	}
+
+	/**
+	 * Draws the background image without scaling it
+	 * @param g the graphics context to draw into
+	 * @param b the board to use for as component to draw to
+	 */
+	protected void drawBackground(Graphics g, Board b)
+	{
+		if (scaledBackground != null)
+		{
+			g.drawImage(scaledBackground, 0, 0, b);
+		}
+	}
+
+	/**
+	 * Draws a pile of stones with a single cached image
+	 * @param r the bounding box to draw into
+	 * @param g the graphics context to draw into
+	 * @param b the board to use for as component to draw to
+	 * @param count the number of stones
+	 */
+	protected void drawStones(Rectangle2D.Double r, Graphics g, Board b, int count)
+	{
+		if (count > 0 && sprites != null)
+		{
+			g.drawImage(sprites.get(r, count), (int)r.getX(), (int)r.getY(), b);
+		}
+	}
+
+	/**
+	 * Draws a score at the bottom of each pit of a player, the best of
+	 * them highlighted, over whatever redraw has drawn
+	 * @param g2 the graphics context to draw into
+	 * @param player the player whose pits are scored
+	 * @param hints the score of each pit, HintAnalyzer.NO_SCORE for a
+	 * pit that cannot be played
+	 */
+	public void drawHints(Graphics2D g2, int player, int[] hints)
+	{
+		int best = HintAnalyzer.NO_SCORE;
+		for (int score : hints)
+		{
+			best = Math.max(best, score);
+		}
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g2.setFont(HINT_FONT);
+		FontMetrics metrics = g2.getFontMetrics();
+		for (int pit = 0; pit < hints.length; pit++)
+		{
+			if (hints[pit] == HintAnalyzer.NO_SCORE)
+			{
+				continue;
+			}
+			String text = hints[pit] > 0 ? "+" + hints[pit] : Integer.toString(hints[pit]);
+			Rectangle2D.Double r = pitRects[player][pit];
+			int w = metrics.stringWidth(text) + 6;
+			int h = metrics.getHeight();
+			int x = (int) (r.getCenterX() - w / 2.0);
+			int y = (int) (r.getMaxY() - h - 1);
+			g2.setColor(hints[pit] == best ? HINT_BEST : HINT_OTHER);
+			g2.fillRoundRect(x, y, w, h, h, h);
+			g2.setColor(Color.WHITE);
+			g2.drawString(text, x + 3, y + metrics.getAscent());
+		}
+	}
+
+	/**
+	 * Gets the bounding boxes for the mancalas
+	 * @return the mancala of each player
+	 */
+	public Rectangle2D.Double[] getMancalaRects()
+	{
+		return mRects;
+	}
+
+	/**
+	 * Gets the bounding box of a pit or mancala
+	 * @param cell a cell index as used by BoardState
+	 * @return the bounding box
+	 */
+	public Rectangle2D.Double getCellRect(int cell)
+	{
+		int stride = pitRects[0].length + 1;
+		int player = cell / stride;
+		int pit = cell % stride;
+		return pit == stride - 1 ? mRects[player] : pitRects[player][pit];
+	}
+
+	/**
+	 * Finds the pit or mancala under a point. The board is divided into
+	 * a grid of small squares, each listing the few boxes that overlap
+	 * it, so only those are tested.
+	 * @param x the x coordinate on the board
+	 * @param y the y coordinate on the board
+	 * @return the cell index as used by BoardState, or -1 for none
+	 */
+	public int cellAt(double x, double y)
+	{
+		if (buckets == null)
+		{
+			buildIndex();
+		}
+		if (x < 0 || y < 0)
+		{
+			return -1;
+		}
+		int col = (int) x / BUCKET;
+		int row = (int) y / BUCKET;
+		if (col >= columns || row >= rows)
+		{
+			return -1;
+		}
+		for (int cell : buckets[row * columns + col])
+		{
+			if (getCellRect(cell).contains(x, y))
+			{
+				return cell;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Lists the boxes overlapping each square of the grid
+	 */
+	private void buildIndex()
+	{
+		columns = Math.max(1, (width + BUCKET - 1) / BUCKET);
+		rows = Math.max(1, (height + BUCKET - 1) / BUCKET);
+		int[][] grid = new int[columns * rows][0];
+		int cells = pitRects.length * (pitRects[0].length + 1);
+		for (int cell = 0; cell < cells; cell++)
+		{
+			Rectangle2D.Double r = getCellRect(cell);
+			if (r == null)
+			{
+				continue;
+			}
+			int left = Math.max(0, (int) r.getMinX() / BUCKET);
+			int right = Math.min(columns - 1, (int) r.getMaxX() / BUCKET);
+			int top = Math.max(0, (int) r.getMinY() / BUCKET);
+			int bottom = Math.min(rows - 1, (int) r.getMaxY() / BUCKET);
+			for (int row = top; row <= bottom; row++)
+			{
+				for (int col = left; col <= right; col++)
+				{
+					int[] list = grid[row * columns + col];
+					list = Arrays.copyOf(list, list.length + 1);
+					list[list.length - 1] = cell;
+					grid[row * columns + col] = list;
+				}
+			}
+		}
+		buckets = grid;
+	}
+
 	/**
 	 * Sets the size of the board
 	 * @param w the width
@@ -58,6 +265,16 @@ public abstract class Layout
 	{
 		width = w;
 		height = h;
+		// The boxes are about to move, index them again on the next lookup
+		buckets = null;
+		if (background != null)
+		{
+			try
+			{
+				scaledBackground = ImageCache.load(background, w, h);
+			}
+			catch (IOException e) { scaledBackground = null; }
+		}
 	}
 }
 
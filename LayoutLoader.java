@@ -0,0 +1,148 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Finds the layouts on the class path and reads all of their images on
+ * background threads, all at once, so they are decoded while the start
+ * dialog is open. Only the layout that is picked is made, and only its
+ * images are waited for.
+ *
+ * Run with -Dmancala.startup.metrics=true to print how long each image
+ * took to load.
+ * @author Team7
+ */
+public class LayoutLoader
+{
+	private static final boolean METRICS = Boolean.getBoolean("mancala.startup.metrics");
+
+	private final long created;
+	private final Map<String, Future<?>> images;
+
+	/**
+	 * Starts reading the images of some layouts
+	 * @param providers the layouts
+	 */
+	public LayoutLoader(List<LayoutProvider> providers)
+	{
+		created = System.nanoTime();
+		images = new LinkedHashMap<String, Future<?>>();
+		List<String> paths = new ArrayList<String>();
+		for (LayoutProvider provider : providers)
+		{
+			for (String path : provider.getImages())
+			{
+				if (!paths.contains(path))
+				{
+					paths.add(path);
+				}
+			}
+		}
+		if (paths.isEmpty())
+		{
+			return;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(
+				Math.min(paths.size(), Runtime.getRuntime().availableProcessors()),
+				task ->
+				{
+					Thread thread = new Thread(task, "layout-loader");
+					thread.setDaemon(true);
+					return thread;
+				});
+		for (final String path : paths)
+		{
+			images.put(path, pool.submit(() -> ImageCache.load(path)));
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Finds the layouts that can draw a board
+	 * @param players the number of players
+	 * @param pits the number of pits per player
+	 * @return the providers of the layouts, in class path order
+	 */
+	public static List<LayoutProvider> discover(int players, int pits)
+	{
+		List<LayoutProvider> providers = new ArrayList<LayoutProvider>();
+		for (LayoutProvider provider : ServiceLoader.load(LayoutProvider.class))
+		{
+			if (provider.supports(players, pits))
+			{
+				providers.add(provider);
+			}
+		}
+		return providers;
+	}
+
+	/**
+	 * Makes a layout once its images are read. A layout whose images
+	 * cannot be read is still returned, and draws without them.
+	 * @param provider one of the layouts being loaded
+	 * @param players the number of players
+	 * @param pits the number of pits per player
+	 * @return the layout, ready to draw
+	 */
+	public Layout load(LayoutProvider provider, int players, int pits)
+	{
+		long start = System.nanoTime();
+		for (String path : provider.getImages())
+		{
+			try
+			{
+				images.get(path).get();
+			}
+			catch (ExecutionException ex)
+			{
+				// loadAssets reads the file again and fails the same way
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+
+		Layout layout = provider.create(players, pits);
+		String outcome = "loaded";
+		try
+		{
+			layout.loadAssets();
+		}
+		catch (IOException ex)
+		{
+			outcome = "failed: " + ex.getMessage();
+		}
+		if (METRICS)
+		{
+			report(layout, outcome, System.nanoTime() - start);
+		}
+		return layout;
+	}
+
+	/**
+	 * Prints how long loading took
+	 */
+	private void report(Layout picked, String outcome, long waited)
+	{
+		System.out.printf("startup: %s %s after %.1f ms, waited %.1f ms%n", picked.getName(),
+				outcome, (System.nanoTime() - created) / 1e6, waited / 1e6);
+		Map<String, Long> times = ImageCache.getLoadTimes();
+		for (String path : images.keySet())
+		{
+			Long nanos = times.get(path);
+			System.out.printf("  %-36s %s%n", path, nanos != null
+					? String.format("%.1f ms", nanos / 1e6)
+					: images.get(path).isDone() ? "failed" : "still loading");
+		}
+	}
+}
@@ -0,0 +1,41 @@
+/**
+ * Describes a layout without making it. Providers are found with
+ * java.util.ServiceLoader, from the META-INF/services/LayoutProvider
+ * files on the class path, so a new skin only needs a provider and a
+ * line in that file. Only the layout the player picks is made.
+ * @author Team7
+ */
+public interface LayoutProvider
+{
+	/**
+	 * Gets the name shown for the layout
+	 * @return the name of the layout
+	 */
+	String getName();
+
+	/**
+	 * Checks if the layout can draw a board
+	 * @param players the number of players
+	 * @param pits the number of pits per player
+	 * @return whether the layout supports the board
+	 */
+	boolean supports(int players, int pits);
+
+	/**
+	 * Gets the image files the layout draws with, so they can be read
+	 * before the layout is made
+	 * @return the paths of the images
+	 */
+	default String[] getImages()
+	{
+		return new String[0];
+	}
+
+	/**
+	 * Makes the layout
+	 * @param players the number of players
+	 * @param pits the number of pits per player
+	 * @return a new layout
+	 */
+	Layout create(int players, int pits);
+}
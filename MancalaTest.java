@@ -6,12 +6,7 @@ public class MancalaTest
 {
 	public static void main(String[] args)
 	{
-		Layout[] layouts = 
-			{
-				new ClassicLayout(2, 6),
-	 			new PokemonLayout(2, 6)
-			};
-
-		Controller g = new Controller(layouts);
+		Controller g = new Controller(LayoutLoader.discover(BoardState.PLAYERS,
+				BoardState.PITS));
 	}
 }
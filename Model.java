@@ -1,5 +1,3 @@
-import java.util.*;
-
 import javax.swing.event.*;
 
 /**
@@ -9,17 +7,14 @@ import javax.swing.event.*;
  */
 public class Model
 {
-	private Pit[][] pits;
-	private Pit[][] backupPits;
-	private int[] score;
-	private int[] reclaimedScore;
+	private BoardState state;
+	private UndoStack history;
 	private int[] numberUndo;
 	private int activePlayer;
 	private int backupActivePlayer;
 
-	private ArrayList<ChangeListener> listeners;
+	private EventDispatcher events;
 
-	private boolean undo;
 	private boolean freeTurn;
 	private boolean endGame;
 	
@@ -30,30 +25,42 @@ public class Model
 	 */
 	public Model(int stones)
 	{
-		pits = new Pit[2][6];
-		score = new int[2];
-		numberUndo = new int[2];
-		backupPits = new Pit[2][];
-		listeners = new ArrayList<ChangeListener>();
+		this(stones, UNDO_MAX);
+	}
+
+	/**
+	 * Contructs a Mancala object that remembers more board states
+	 * @param stones number of stones(3 or 4)
+	 * @param undoDepth number of board states kept for undo and redo
+	 */
+	public Model(int stones, int undoDepth)
+	{
+		this(BoardState.PLAYERS, BoardState.PITS, stones, undoDepth);
+	}
+
+	/**
+	 * Contructs a Mancala object for a board of any size
+	 * @param players number of players
+	 * @param pits number of pits per player
+	 * @param stones number of stones per pit
+	 * @param undoDepth number of board states kept for undo and redo
+	 */
+	public Model(int players, int pits, int stones, int undoDepth)
+	{
+		state = new BoardState(players, pits, stones);
+		history = new UndoStack(undoDepth, state.getSize());
+		numberUndo = new int[players];
+		events = new EventDispatcher(this);
 		endGame = false;
 
-		//Setting stones for the initial screen
-		for (int i = 0; i < 2; i++) // i: 0 -> 1
+		//No inital undos available
+		for (int i = 0; i < players; i++)
 		{
-			score[i] = 0;
-			numberUndo[i] = 0; //No inital undos available
-
-			for (int j = 0; j < 6; j++) 
-			{ // j:0 -> 5
-				pits[i][j] = new Pit();
-				pits[i][j].setCount(stones); //Setting desired number of stones per pit
-			}
+			numberUndo[i] = 0;
 		}
 		activePlayer = 0;
-		undo = false;
 		freeTurn = false;
 		backupActivePlayer = 0;
-		preUndo();
 	}
 
 	/**
@@ -68,12 +75,48 @@ public class Model
 			//Checks if user is active or not
 			throw new IllegalArgumentException("Player not currently active.");
 		}
-		// Checking if an empty pit was clicked
-		if (pits[player][pit].getCount() == 0) 
+		// An empty pit is ignored
+		make(pit);
+	}
+
+	/**
+	 * Gets the pits the active player can play
+	 * @return a bitmask with bit i set if pit i can be played, or 0 when
+	 * the game is over
+	 */
+	public long getLegalMoves()
+	{
+		return endGame ? 0 : state.getLegalMoves(activePlayer);
+	}
+
+	/**
+	 * Checks if a player can play a pit now
+	 * @param player a player
+	 * @param pit a pit
+	 * @return whether the player is active and the pit has stones
+	 */
+	public boolean isLegalMove(int player, int pit)
+	{
+		return !endGame && player == activePlayer && state.isLegalMove(player, pit);
+	}
+
+	/**
+	 * Plays a pit of the active player if it can be played, without
+	 * throwing for an illegal move. The move can be taken back with undo
+	 * like any other.
+	 * @param pit a pit
+	 * @return a combination of BoardState.FREE_TURN, CAPTURE and
+	 * GAME_OVER, or BoardState.ILLEGAL if nothing was played
+	 */
+	public int make(int pit)
+	{
+		int player = activePlayer;
+		if (!isLegalMove(player, pit))
 		{
-			return;
+			return BoardState.ILLEGAL;
 		}
 		preUndo();
+		state.clearChanged();
 		if (freeTurn) 
 		{
 			numberUndo[player] = 0;
@@ -83,51 +126,40 @@ public class Model
 		{
 			//Resets the next player's undo count
 			numberUndo[nextPlayer(player)] = 0;
-			backupActivePlayer = player;
 		}
 
-		//Allows an undo after first move
-		undo = true;
-
-		//Gets number of stones per pit
-		int tempStone = pits[player][pit].getCount();
+		//The next undo takes back this move
+		backupActivePlayer = player;
 
-		//Sets number of stone back to 0 after player distribute stones of the pit
-		pits[player][pit].setCount(0);
+		//Distributes the stones of the pit, skipping the opponent's mancala
+		int sown = state.get(player, pit);
+		int last = state.sow(player, pit);
+		int captured = 0;
 
-		//Checks if pits have stones before distributing.
-		while (tempStone > 0)
+		// Checks for mancala, if so current side has one more move.
+		if (state.isStore(last))
 		{
-			//Move to the next pit
-			pit = moveNextPit(pit);
-
-			//If all of the pits have been distributed to, the next pit to be distributed to
-			//should be the mancala pit
-			if (pit == 0)
-			{		
-				// Checks for mancala, if so current side has one more move.
-				if (player == activePlayer)
-				{
-					++score[player];
-					--tempStone;
-					if (tempStone <= 0)
-					{
-						checkAllPit();
-						freeTurn = true;
-						update();
-						return;
-					}
-				}
-				player = nextPlayer(player);
-			}
-			pits[player][pit].setCount(pits[player][pit].getCount()+1);
-			tempStone-=1;
+			checkAllPit();
+			freeTurn = true;
 		}
-		endTurn(player, pit);
+		else
+		{
+			captured = endTurn(state.owner(last), state.pitOf(last));
+		}
+
+		//Notify change
+		int result = (freeTurn ? BoardState.FREE_TURN : 0)
+				| (captured > 0 ? BoardState.CAPTURE : 0)
+				| (endGame ? BoardState.GAME_OVER : 0);
+		events.fireMove(player, pit, sown, captured, result);
+		update();
+		return result;
 	}
 
 	/**
-	 * Allows player to undo to the previous state of the board
+	 * Allows player to undo to the previous state of the board. Calling
+	 * it again steps further back, as far as the history goes and the
+	 * undo count of the player whose move is taken back allows.
 	 */
 	public void undo()
 	{
@@ -137,36 +169,93 @@ public class Model
 			return;
 		}
 
-		//Restores all data of pits when user undo
-		for (int i = 0; i < 2; i++)
-		{
-			pits[i] = backupPits[i].clone();
-		}
-		//Restoring all data of mancalas when user undo
-		score = reclaimedScore.clone();
-		//increase number of undo time
-		numberUndo[backupActivePlayer]++;
-		//undo player
-		activePlayer = backupActivePlayer;
-		//Disable undo option
-		undo = false;
-		//Disable free turn
+		//Restores all data of pits and mancalas when user undo
+		state.clearChanged();
+		int tag = history.undo(state, tag());
+		//undo player, who pays for the undo
+		activePlayer = tag >> 1;
+		numberUndo[activePlayer]++;
+		//The next undo takes back the move before this one
+		backupActivePlayer = history.canUndo() ? history.peek() >> 1 : activePlayer;
+		//Disable free turn, so replaying it does not reset the undo count
 		freeTurn = false;
 		//Notify change listener
 		update();
 	}
 
+	/**
+	 * Allows player to take back the last undo. Calling it again steps
+	 * forward through earlier undos until the next move is made.
+	 */
+	public void redo()
+	{
+		if (!isRedoable())
+		{
+			return;
+		}
+
+		//Restores the board and the turn as they were before the undo
+		state.clearChanged();
+		int player = activePlayer;
+		int tag = history.redo(state, tag());
+		activePlayer = tag >> 1;
+		freeTurn = (tag & 1) != 0;
+		//The undo stays spent, so undo and redo cannot be repeated for free
+		backupActivePlayer = player;
+		update();
+	}
+
 	/**
 	 * Attaches a listener to the mancala to update changes on the board
 	 * @param listener a listener to update changes
 	 */
 	public void attach(ChangeListener listener)
 	{
-		listeners.add(listener);
+		events.addChangeListener(listener);
 		/* Update the newly added Controller */
 		update();
 	}
 
+	/**
+	 * Detaches a listener from the mancala
+	 * @param listener a listener that was attached
+	 */
+	public void detach(ChangeListener listener)
+	{
+		events.removeChangeListener(listener);
+	}
+
+	/**
+	 * Adds a listener that is told about every move, such as a logger
+	 * or a statistics collector
+	 * @param listener a listener for moves
+	 */
+	public void addMoveListener(MoveListener listener)
+	{
+		events.addMoveListener(listener);
+	}
+
+	/**
+	 * Removes a move listener
+	 * @param listener a listener that was added
+	 */
+	public void removeMoveListener(MoveListener listener)
+	{
+		events.removeMoveListener(listener);
+	}
+
+	/**
+	 * Chooses whether listeners are told about changes on a background
+	 * thread, so slow listeners do not hold up the game. Listeners that
+	 * touch Swing components must then hand their work to the event
+	 * dispatch thread themselves.
+	 * @param asynchronous whether to notify listeners in the background
+	 */
+	public void setAsynchronousEvents(boolean asynchronous)
+	{
+		events.setAsynchronous(asynchronous);
+	}
+
 	/**
 	 * Updates the listeners so the view knows that a change has been made
 	 */
@@ -187,10 +276,7 @@ public class Model
 		 *System.out.println("\n");
 		 */
 
-		for (ChangeListener listener : listeners)
-		{
-			listener.stateChanged(new ChangeEvent(this));
-		}
+		events.fireStateChanged();
 	}
 
 	/**
@@ -199,7 +285,45 @@ public class Model
 	 */
 	public Pit[][] getPits()
 	{
-		return pits.clone();
+		return state.toPits();
+	}
+
+	/**
+	 * Gets the number of stones in one cell of the board
+	 * @param index a cell index as used by BoardState
+	 * @return the number of stones
+	 */
+	public int getCell(int index)
+	{
+		return state.getCell(index);
+	}
+
+	/**
+	 * Gets the number of pits and mancalas on the board
+	 * @return the number of cells
+	 */
+	public int getCellCount()
+	{
+		return state.getSize();
+	}
+
+	/**
+	 * Gets the cells changed by the last move, undo or redo, so a view
+	 * can update only those
+	 * @return a bitmask with a bit set for every changed BoardState cell
+	 */
+	public long getChangedCells()
+	{
+		return state.getChanged();
+	}
+
+	/**
+	 * Get a copy of the board for the computer player to search
+	 * @return a copy of the packed board
+	 */
+	public BoardState getState()
+	{
+		return new BoardState(state);
 	}
 
 	/**
@@ -208,7 +332,7 @@ public class Model
 	 */
 	public int[] getMancalas()
 	{
-		return score.clone();
+		return state.toStores();
 	}
 
 	/**
@@ -217,13 +341,17 @@ public class Model
 	 */
 	private void preUndo()
 	{
-		//copy data from mancalas before user move in to backup mancalas
-		reclaimedScore = score.clone();
-		//copy data in pits before user move into backup pits
-		for (int i = 0; i < 2; i++) 
-		{
-			backupPits[i] = pits[i].clone();
-		}
+		//copy data in pits and mancalas before user move into the history
+		history.push(state, tag());
+	}
+
+	/**
+	 * Packs the turn information saved with each board state
+	 * @return the active player and the free turn flag
+	 */
+	private int tag()
+	{
+		return activePlayer << 1 | (freeTurn ? 1 : 0);
 	}
 
 	/**
@@ -233,8 +361,9 @@ public class Model
 	 * side of the board is empty
 	 * @param player which player
 	 * @param pit a pit
+	 * @return the number of stones captured, or 0
 	 */
-	private void endTurn(int player, int pit)
+	private int endTurn(int player, int pit)
 	{
 		/* What happens at the end of a turn? 
 		 *	The case of ending in a mancala is handled in move().
@@ -242,11 +371,12 @@ public class Model
 		 *		take that stone and all stones in the adjacent pit.
 		 *	Your turn ends when your hand is empty.
 		 */
-		if (player == activePlayer && pits[player][pit].getCount() == 1)
+		int captured = 0;
+		if (player == activePlayer && state.get(player, pit) == 1)
 		{
-			score[player] += 1 + pits[nextPlayer(player)][6 - pit - 1].getCount();
-			pits[player][pit].setCount(0);
-			pits[nextPlayer(player)][6 - pit - 1].setCount(0);
+			captured = state.getStore(player);
+			state.capture(player, pit);
+			captured = state.getStore(player) - captured;
 			freeTurn = true;
 		}
 		else
@@ -256,9 +386,7 @@ public class Model
 
 		//Checking if all pits are empty, then end game
 		checkAllPit();
-
-		//Notify change
-		update();
+		return captured;
 	}
 
 	/**
@@ -271,24 +399,15 @@ public class Model
 	}
 
 	/**
-	 * Checks if either side is empty and ends the game
+	 * Checks if any side is empty and ends the game
 	 */
 	private void checkAllPit()
 	{
-		Pit[][] checkPits = getPits();
-		int empty;
-		for (int i = 0; i < 2; i++)
+		for (int i = 0; i < state.getPlayers(); i++)
 		{
-			empty = 0;
-			for (int j = 0; j < 6; j++)
+			if (state.isSideEmpty(i))
 			{
-				if (checkPits[i][j].getCount() == 0)
-					empty++;
-			}
-
-			if (empty == 6)
-			{
-				endGame(nextPlayer(i));
+				endGame();
 				break;
 			}
 		}
@@ -298,41 +417,15 @@ public class Model
 	 * Empties the pits and moves them to the corresponding mancala
 	 * afterwards it sets the winner as the active player
 	 */
-	private void endGame(int player)
+	private void endGame()
 	{
 		endGame = true;
 
 		// empties the remainder of the board
-		for (int i = 0; i < 6; i++) 
-		{
-			score[player] += pits[player][i].getCount();
-			pits[player][i].setCount(0);
-		}
+		state.sweepAll();
 
-		// sets the winner as the active player
-		if (score[activePlayer] == score[nextPlayer(activePlayer)]) 
-		{
-			activePlayer = -1;
-		}
-		else if (score[activePlayer] < score[nextPlayer(activePlayer)]) 
-		{
-			activePlayer = nextPlayer(activePlayer);
-		}
-	}
-
-	/**
-	 * Go to next pit
-	 * @param pit a pit
-	 * @return the next pit
-	 */
-	private int moveNextPit(int pit)
-	{
-		pit+=1; //moving current pit to next pit
-		if (pit >= 6) 
-		{
-			pit = 0; //if current pit is 6, then back to pit 1 (pit : 0 -> 5)
-		}
-		return pit;
+		// sets the winner as the active player, or -1 for a draw
+		activePlayer = state.winner();
 	}
 
 	/**
@@ -342,12 +435,7 @@ public class Model
 	 */
 	private int nextPlayer(int player)
 	{
-		player+=1;//move to next player
-		if (player >= 2) 
-		{
-			player = 0; // if player is > 2 then move back to 0 (player: 0 - > 1)
-		}
-		return player;
+		return state.nextPlayer(player);
 	}
 
 	/**
@@ -377,11 +465,21 @@ public class Model
 		return UNDO_MAX - numberUndo[backupActivePlayer];
 	}
 
+	/**
+	 * Checks if the last undo can be taken back
+	 * @return whether redo is possible
+	 */
+	public boolean isRedoable()
+	{
+		//Only the undos made since the last move can be redone
+		return !isGameEnd() && history.canRedo();
+	}
+
 	public boolean isUndoable() {
 		//Cannot undo at first move of the game.
-		//Player already undo on that row
+		//Cannot undo past the oldest state kept
 		//Cannot undo when there is no more undo time
-		if (isGameEnd() || !undo || (activePlayer == backupActivePlayer && !undo) ||
+		if (isGameEnd() || !history.canUndo() ||
 				(numberUndo[backupActivePlayer] == UNDO_MAX)) 
 		{
 			return false;
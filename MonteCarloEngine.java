@@ -0,0 +1,478 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A computer opponent that chooses moves by Monte Carlo tree search.
+ * Each playout walks down the tree by UCT, adds the children of a leaf
+ * once it has been visited a few times, plays the game out at random
+ * and counts the result back up the path. The move played most often
+ * from the root is chosen.
+ *
+ * The tree is kept in primitive arrays allocated once, one slot per
+ * node, and the children of a node sit side by side. Playouts are
+ * played on a packed board per thread. A search therefore allocates
+ * nothing per node or playout, however long it thinks. When the arena
+ * is full the tree stops growing and the search goes on with playouts
+ * from its leaves.
+ *
+ * Several threads can search the same tree. A thread walking down the
+ * tree adds a virtual loss to each node it passes, which is taken back
+ * when its result is counted, so other threads try other lines in the
+ * meantime. Visit counts and scores are updated atomically.
+ * @author Team7
+ */
+public class MonteCarloEngine
+{
+	private static final int DEFAULT_ARENA_MB = 64;
+	private static final int NODE_BYTES = 15;
+	private static final int VIRTUAL_LOSS = 3;
+	private static final int EXPAND_VISITS = 8;
+	private static final double EXPLORATION = Math.sqrt(2);
+	private static final int MAX_PATH = 1024;
+	private static final int CHECK_INTERVAL = 63;
+	// The children of a node that is being expanded, or cannot be
+	private static final int LEAF = -1;
+
+	private final int capacity;
+	private final AtomicIntegerArray children;
+	private final AtomicIntegerArray visits;
+	// Twice the results of the mover of each node: 2 a win, 1 a draw
+	private final AtomicIntegerArray scores;
+	private final byte[] counts;
+	private final byte[] pits;
+	private final byte[] movers;
+	private final AtomicInteger used;
+	private final AtomicLong playouts;
+	private final boolean heuristic;
+	private final Worker[] workers;
+	private final ExecutorService pool;
+
+	private BoardState root;
+	private int rootPlayer;
+	private long deadline;
+	private long limit;
+	private volatile boolean halt;
+
+	/**
+	 * Constructs an engine with a 64 megabyte tree on one thread
+	 * @param seed the seed of the random playouts
+	 */
+	public MonteCarloEngine(long seed)
+	{
+		this(DEFAULT_ARENA_MB, 1, true, seed);
+	}
+
+	/**
+	 * Constructs an engine
+	 * @param arenaMegabytes the memory used by the tree
+	 * @param threads the number of threads searching each move
+	 * @param heuristic whether playouts take free turns when they can
+	 * instead of playing only random moves
+	 * @param seed the seed of the random playouts
+	 */
+	public MonteCarloEngine(int arenaMegabytes, int threads, boolean heuristic, long seed)
+	{
+		if (arenaMegabytes <= 0 || threads <= 0)
+		{
+			throw new IllegalArgumentException("Arena size and thread count must be positive.");
+		}
+		capacity = (int) Math.min((long) arenaMegabytes * 1024 * 1024 / NODE_BYTES,
+				Integer.MAX_VALUE - 64);
+		children = new AtomicIntegerArray(capacity);
+		visits = new AtomicIntegerArray(capacity);
+		scores = new AtomicIntegerArray(capacity);
+		counts = new byte[capacity];
+		pits = new byte[capacity];
+		movers = new byte[capacity];
+		used = new AtomicInteger();
+		playouts = new AtomicLong();
+		this.heuristic = heuristic;
+
+		workers = new Worker[threads];
+		for (int i = 0; i < threads; i++)
+		{
+			workers[i] = new Worker(seed + i);
+		}
+		pool = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, task ->
+		{
+			Thread thread = new Thread(task, "mcts-helper");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Finds the best move for a player
+	 * @param board the board to search
+	 * @param player the player to move
+	 * @param millis the time budget in milliseconds
+	 * @return the pit to play, or -1 if the player has no move
+	 */
+	public int search(BoardState board, int player, long millis)
+	{
+		return run(board, player, System.nanoTime() + millis * 1000000L, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Finds the best move for a player with a fixed number of playouts,
+	 * however long they take
+	 * @param board the board to search
+	 * @param player the player to move
+	 * @param count the number of playouts
+	 * @return the pit to play, or -1 if the player has no move
+	 */
+	public int searchPlayouts(BoardState board, int player, long count)
+	{
+		return run(board, player, Long.MAX_VALUE, count);
+	}
+
+	/**
+	 * Gets the number of playouts of the last search
+	 * @return the playout count
+	 */
+	public long getPlayouts()
+	{
+		long total = 0;
+		for (Worker worker : workers)
+		{
+			total += worker.done;
+		}
+		return total;
+	}
+
+	/**
+	 * Gets the number of nodes of the last search's tree
+	 * @return the node count
+	 */
+	public int getNodes()
+	{
+		return Math.min(used.get(), capacity);
+	}
+
+	/**
+	 * Gets how often the last search played a pit from the root
+	 * @param pit a pit of the player who was searched for
+	 * @return the number of visits, or 0 if the pit could not be played
+	 */
+	public int getVisits(int pit)
+	{
+		int child = child(pit);
+		return child < 0 ? 0 : visits.get(child);
+	}
+
+	/**
+	 * Gets how well a pit did for the player in the last search
+	 * @param pit a pit of the player who was searched for
+	 * @return the share of playouts won, counting a draw as half, or -1
+	 * if the pit was not played
+	 */
+	public double getWinRate(int pit)
+	{
+		int child = child(pit);
+		if (child < 0 || visits.get(child) == 0)
+		{
+			return -1;
+		}
+		return scores.get(child) / (2.0 * visits.get(child));
+	}
+
+	/**
+	 * Finds the root's child for a pit
+	 */
+	private int child(int pit)
+	{
+		int first = children.get(0);
+		if (used.get() == 0 || first <= 0)
+		{
+			return -1;
+		}
+		for (int c = first; c < first + counts[0]; c++)
+		{
+			if (pits[c] == pit)
+			{
+				return c;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Searches on every thread until the deadline or the playout limit
+	 */
+	private int run(BoardState board, int player, long deadline, long limit)
+	{
+		long legal = board.getLegalMoves(player);
+		if (legal == 0)
+		{
+			return -1;
+		}
+		root = new BoardState(board);
+		rootPlayer = player;
+		this.deadline = deadline;
+		this.limit = limit;
+		halt = false;
+		playouts.set(0);
+		for (Worker worker : workers)
+		{
+			worker.done = 0;
+		}
+		used.set(1);
+		reset(0, -1, -1);
+		expand(0, root, player);
+		if (Long.bitCount(legal) == 1)
+		{
+			return Long.numberOfTrailingZeros(legal);
+		}
+
+		Future<?>[] running = new Future<?>[workers.length - 1];
+		for (int i = 0; i < running.length; i++)
+		{
+			running[i] = pool.submit(workers[i + 1]);
+		}
+		workers[0].run();
+		halt = true;
+		for (Future<?> helper : running)
+		{
+			try
+			{
+				helper.get();
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException ex)
+			{
+				throw new IllegalStateException("Search helper failed.", ex.getCause());
+			}
+		}
+
+		// The most visited move is the one the search trusts most
+		int first = children.get(0);
+		int best = first;
+		for (int c = first + 1; c < first + counts[0]; c++)
+		{
+			if (visits.get(c) > visits.get(best))
+			{
+				best = c;
+			}
+		}
+		return pits[best];
+	}
+
+	/**
+	 * Clears a node for reuse
+	 */
+	private void reset(int node, int pit, int mover)
+	{
+		pits[node] = (byte) pit;
+		movers[node] = (byte) mover;
+		counts[node] = 0;
+		visits.set(node, 0);
+		scores.set(node, 0);
+		children.set(node, 0);
+	}
+
+	/**
+	 * Adds the children of a node, unless another thread is doing so or
+	 * the arena is full
+	 * @param board the board at the node
+	 * @param player the player to move at the node
+	 * @return whether the node has children now
+	 */
+	private boolean expand(int node, BoardState board, int player)
+	{
+		if (!children.compareAndSet(node, 0, LEAF))
+		{
+			return false;
+		}
+		long legal = board.getLegalMoves(player);
+		int count = Long.bitCount(legal);
+		// The node stays a leaf for good once the arena is full
+		if (used.get() + count > capacity)
+		{
+			return false;
+		}
+		int first = used.getAndAdd(count);
+		if (first + count > capacity)
+		{
+			return false;
+		}
+		for (int c = first; legal != 0; c++, legal &= legal - 1)
+		{
+			reset(c, Long.numberOfTrailingZeros(legal), player);
+		}
+		counts[node] = (byte) count;
+		// Publishing the index makes the children visible to other threads
+		children.set(node, first);
+		return true;
+	}
+
+	/**
+	 * Picks the child with the best upper confidence bound, trying every
+	 * child once first
+	 */
+	private int select(int node, int first)
+	{
+		double logVisits = Math.log(Math.max(1, visits.get(node)));
+		int best = first;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int c = first; c < first + counts[node]; c++)
+		{
+			int n = visits.get(c);
+			if (n == 0)
+			{
+				return c;
+			}
+			double value = scores.get(c) / (2.0 * n) + EXPLORATION * Math.sqrt(logVisits / n);
+			if (value > bestValue)
+			{
+				bestValue = value;
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * The scratch space of one search thread
+	 */
+	private class Worker implements Runnable
+	{
+		private final SplittableRandom rand;
+		private final int[] path = new int[MAX_PATH];
+		private BoardState board;
+		private long done;
+
+		Worker(long seed)
+		{
+			rand = new SplittableRandom(seed);
+		}
+
+		@Override
+		public void run()
+		{
+			if (board == null || board.getSize() != root.getSize()
+					|| board.getPlayers() != root.getPlayers())
+			{
+				board = new BoardState(root);
+			}
+			while (!halt)
+			{
+				long n = playouts.incrementAndGet();
+				if (n > limit || (n & CHECK_INTERVAL) == 0 && System.nanoTime() > deadline)
+				{
+					break;
+				}
+				iterate();
+				done++;
+			}
+			halt = true;
+		}
+
+		/**
+		 * Walks down the tree, plays the game out and counts the result
+		 */
+		private void iterate()
+		{
+			board.copyFrom(root);
+			int player = rootPlayer;
+			int node = 0;
+			int depth = 0;
+			int winner = -2;
+			visits.addAndGet(0, VIRTUAL_LOSS);
+			path[depth++] = 0;
+			while (depth < MAX_PATH)
+			{
+				int first = children.get(node);
+				if (first == 0 && visits.get(node) >= EXPAND_VISITS && expand(node, board, player))
+				{
+					first = children.get(node);
+				}
+				if (first <= 0)
+				{
+					break;
+				}
+				node = select(node, first);
+				visits.addAndGet(node, VIRTUAL_LOSS);
+				path[depth++] = node;
+				int flags = board.play(player, pits[node]);
+				if ((flags & BoardState.GAME_OVER) != 0)
+				{
+					winner = board.winner();
+					break;
+				}
+				if ((flags & BoardState.FREE_TURN) == 0)
+				{
+					player = board.nextPlayer(player);
+				}
+			}
+			if (winner == -2)
+			{
+				winner = playout(player);
+			}
+
+			// Take back the virtual losses and count the real result
+			for (int i = 0; i < depth; i++)
+			{
+				int n = path[i];
+				visits.addAndGet(n, 1 - VIRTUAL_LOSS);
+				if (i > 0)
+				{
+					scores.addAndGet(n, movers[n] == winner ? 2 : winner < 0 ? 1 : 0);
+				}
+			}
+		}
+
+		/**
+		 * Plays the game out on the thread's board
+		 * @return the winner, or -1 for a draw
+		 */
+		private int playout(int player)
+		{
+			while (true)
+			{
+				int flags = board.play(player, pick(player));
+				if ((flags & BoardState.GAME_OVER) != 0)
+				{
+					return board.winner();
+				}
+				if ((flags & BoardState.FREE_TURN) == 0)
+				{
+					player = board.nextPlayer(player);
+				}
+			}
+		}
+
+		/**
+		 * Chooses a playout move: the free turn nearest the mancala if
+		 * heuristic, otherwise any pit that is not empty
+		 */
+		private int pick(int player)
+		{
+			long legal = board.getLegalMoves(player);
+			if (heuristic)
+			{
+				for (long m = legal; m != 0; m ^= Long.highestOneBit(m))
+				{
+					int pit = 63 - Long.numberOfLeadingZeros(m);
+					if (board.get(player, pit) == board.getPits() - pit)
+					{
+						return pit;
+					}
+				}
+			}
+			for (int skip = rand.nextInt(Long.bitCount(legal)); skip > 0; skip--)
+			{
+				legal &= legal - 1;
+			}
+			return Long.numberOfTrailingZeros(legal);
+		}
+	}
+}
@@ -0,0 +1,29 @@
+/**
+ * A strategy that plays the Monte Carlo engine's move after a fixed
+ * number of playouts on one thread, so simulations give the same
+ * results on any machine
+ * @author Team7
+ */
+public class MonteCarloStrategy implements Strategy
+{
+	private final MonteCarloEngine engine;
+	private final long playouts;
+
+	/**
+	 * Constructs a Monte Carlo player
+	 * @param playouts the number of playouts for every move
+	 * @param arenaMegabytes the memory used by the tree
+	 * @param seed the seed of the random playouts
+	 */
+	public MonteCarloStrategy(long playouts, int arenaMegabytes, long seed)
+	{
+		this.playouts = playouts;
+		engine = new MonteCarloEngine(arenaMegabytes, 1, true, seed);
+	}
+
+	@Override
+	public int choose(BoardState board, int player)
+	{
+		return engine.searchPlayouts(board, player, playouts);
+	}
+}
@@ -0,0 +1,86 @@
+import javax.swing.event.ChangeEvent;
+
+/**
+ * Describes one move made in a game of mancala. A single event object
+ * is reused for every move, so listeners read it during the call and
+ * copy what they need to keep.
+ * @author Team7
+ */
+public class MoveEvent extends ChangeEvent
+{
+	private static final long serialVersionUID = 1L;
+
+	private int player;
+	private int pit;
+	private int stonesSown;
+	private int captured;
+	private int flags;
+
+	/**
+	 * Constructs an event
+	 * @param source the game the moves are made in
+	 */
+	public MoveEvent(Object source)
+	{
+		super(source);
+	}
+
+	/**
+	 * Fills in the event for the next move
+	 * @param player the player who moved
+	 * @param pit the pit picked up
+	 * @param stonesSown the number of stones picked up
+	 * @param captured the number of stones captured, or 0
+	 * @param flags a combination of BoardState.FREE_TURN, CAPTURE and GAME_OVER
+	 */
+	void set(int player, int pit, int stonesSown, int captured, int flags)
+	{
+		this.player = player;
+		this.pit = pit;
+		this.stonesSown = stonesSown;
+		this.captured = captured;
+		this.flags = flags;
+	}
+
+	/**
+	 * Gets the player who moved
+	 * @return the player
+	 */
+	public int getPlayer() { return player; }
+
+	/**
+	 * Gets the pit that was picked up
+	 * @return the pit
+	 */
+	public int getPit() { return pit; }
+
+	/**
+	 * Gets the number of stones that were sown
+	 * @return the stone count
+	 */
+	public int getStonesSown() { return stonesSown; }
+
+	/**
+	 * Gets the number of stones captured, including the last stone sown
+	 * @return the stone count, or 0 if there was no capture
+	 */
+	public int getCaptured() { return captured; }
+
+	/**
+	 * Checks if the move captured the pit across the board
+	 * @return whether there was a capture
+	 */
+	public boolean isCapture() { return (flags & BoardState.CAPTURE) != 0; }
+
+	/**
+	 * Checks if the player moves again
+	 * @return whether the move gave a free turn
+	 */
+	public boolean isFreeTurn() { return (flags & BoardState.FREE_TURN) != 0; }
+
+	/**
+	 * Checks if the move ended the game
+	 * @return whether the game is over
+	 */
+	public boolean isGameOver() { return (flags & BoardState.GAME_OVER) != 0; }
+}
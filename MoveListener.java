@@ -0,0 +1,15 @@
+import java.util.EventListener;
+
+/**
+ * A listener that is told about every move made in a game of mancala
+ * @author Team7
+ */
+public interface MoveListener extends EventListener
+{
+	/**
+	 * Called after a move has been played. The event object is reused
+	 * for every move, so it must not be kept after this call returns.
+	 * @param event what happened in the move
+	 */
+	void moveMade(MoveEvent event);
+}
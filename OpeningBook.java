@@ -0,0 +1,160 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The best moves of the opening positions, read from a file built by
+ * OpeningBookBuilder. The file is memory mapped and its entries are
+ * sorted by Zobrist hash, so a lookup is a binary search of the mapped
+ * file and nothing is read onto the heap.
+ *
+ * An entry is twelve bytes: the position's hash, the score the search
+ * gave the best move as a short, the best pit and the depth searched.
+ * @author Team7
+ */
+public class OpeningBook
+{
+	/** Marks the start of an opening book file */
+	public static final int MAGIC = 0x4D4F424B;
+	/** The file format version */
+	public static final int VERSION = 1;
+	/** The size of the file header in bytes */
+	public static final int HEADER = 16;
+	/** The size of an entry in bytes */
+	public static final int ENTRY = 12;
+
+	private final ByteBuffer entries;
+	private final int count;
+
+	/**
+	 * Constructs a book over entries that are already in memory
+	 */
+	private OpeningBook(ByteBuffer entries, int count)
+	{
+		this.entries = entries;
+		this.count = count;
+	}
+
+	/**
+	 * Maps an opening book file into memory
+	 * @param file the path of the file
+	 * @return the book
+	 * @throws IOException if the file cannot be read or is not an opening book
+	 */
+	public static OpeningBook open(String file) throws IOException
+	{
+		Path path = Paths.get(file);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+			if (buffer.limit() < HEADER || buffer.getInt(0) != MAGIC
+					|| buffer.getInt(4) != VERSION)
+			{
+				throw new IOException(file + " is not an opening book.");
+			}
+			if (buffer.getInt(8) != BoardState.PITS)
+			{
+				throw new IOException(file + " was built for another board size.");
+			}
+			int count = buffer.getInt(12);
+			if (buffer.limit() != HEADER + (long) count * ENTRY)
+			{
+				throw new IOException(file + " is truncated.");
+			}
+			buffer.position(HEADER);
+			return new OpeningBook(buffer.slice(), count);
+		}
+	}
+
+	/**
+	 * Finds a position in the book
+	 * @param board a board
+	 * @param player the player to move
+	 * @return the position's entry, or -1 if it is not in the book
+	 */
+	public int find(BoardState board, int player)
+	{
+		if (!board.isStandard())
+		{
+			return -1;
+		}
+		long hash = Zobrist.hash(board, player);
+		int low = 0;
+		int high = count - 1;
+		while (low <= high)
+		{
+			int middle = (low + high) >>> 1;
+			long key = entries.getLong(middle * ENTRY);
+			if (key < hash)
+			{
+				low = middle + 1;
+			}
+			else if (key > hash)
+			{
+				high = middle - 1;
+			}
+			else
+			{
+				// A different position with the same hash may not have this pit
+				return board.isLegalMove(player, getMove(middle)) ? middle : -1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the best move of a position
+	 * @param board a board
+	 * @param player the player to move
+	 * @return the pit to play, or -1 if the position is not in the book
+	 */
+	public int probe(BoardState board, int player)
+	{
+		int entry = find(board, player);
+		return entry < 0 ? -1 : getMove(entry);
+	}
+
+	/**
+	 * Gets the best pit of an entry
+	 * @param entry an entry found by find
+	 * @return the pit
+	 */
+	public int getMove(int entry)
+	{
+		return entries.get(entry * ENTRY + 10);
+	}
+
+	/**
+	 * Gets the score of an entry's best move
+	 * @param entry an entry found by find
+	 * @return the expected mancala difference for the player to move
+	 */
+	public int getScore(int entry)
+	{
+		return entries.getShort(entry * ENTRY + 8);
+	}
+
+	/**
+	 * Gets the depth an entry was searched to
+	 * @param entry an entry found by find
+	 * @return the depth in plies
+	 */
+	public int getDepth(int entry)
+	{
+		return entries.get(entry * ENTRY + 11);
+	}
+
+	/**
+	 * Gets the number of positions in the book
+	 * @return the entry count
+	 */
+	public int size()
+	{
+		return count;
+	}
+}
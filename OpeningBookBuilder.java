@@ -0,0 +1,232 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the opening book offline. Every position reachable within a
+ * number of plies from the start of a game with 3 or 4 stones per pit,
+ * the two games StartView offers, is searched to a fixed depth, and the
+ * best moves are written to a file that OpeningBook maps into memory.
+ * A free turn counts as a ply. The positions are searched on every
+ * core, each thread with its own engine.
+ *
+ * Usage: java OpeningBookBuilder [plies] [depth] [file] [threads]
+ * @author Team7
+ */
+public class OpeningBookBuilder
+{
+	private static final int TABLE_MB = 16;
+	private static final int[] STONES = { 3, 4 };
+
+	private final List<BoardState> boards = new ArrayList<BoardState>();
+	private final List<Integer> players = new ArrayList<Integer>();
+	// The most plies left after each position found so far, by hash
+	private final Map<Long, Integer> seen = new HashMap<Long, Integer>();
+	private final int depth;
+	private long[] hashes;
+	private short[] scores;
+	private byte[] moves;
+
+	/**
+	 * Finds the positions of the book
+	 * @param plies how many plies from the start to include
+	 * @param depth the depth to search each position to, at most 127
+	 */
+	public OpeningBookBuilder(int plies, int depth)
+	{
+		if (depth < 1 || depth > Byte.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Depth must be from 1 to 127.");
+		}
+		this.depth = depth;
+		for (int stones : STONES)
+		{
+			Model game = new Model(stones);
+			explore(game.getState(), game.getActive(), plies);
+		}
+	}
+
+	/**
+	 * Adds a position and the positions after it. A position found again
+	 * by a shorter line is explored again, since more of what follows it
+	 * is within the ply limit.
+	 */
+	private void explore(BoardState board, int player, int plies)
+	{
+		long hash = Zobrist.hash(board, player);
+		Integer known = seen.get(hash);
+		if (known != null && known >= plies)
+		{
+			return;
+		}
+		seen.put(hash, plies);
+		if (known == null)
+		{
+			boards.add(board);
+			players.add(player);
+		}
+		if (plies == 0)
+		{
+			return;
+		}
+		for (long legal = board.getLegalMoves(player); legal != 0; legal &= legal - 1)
+		{
+			BoardState child = new BoardState(board);
+			int result = child.play(player, Long.numberOfTrailingZeros(legal));
+			if ((result & BoardState.GAME_OVER) == 0)
+			{
+				explore(child, (result & BoardState.FREE_TURN) != 0 ? player
+						: child.nextPlayer(player), plies - 1);
+			}
+		}
+	}
+
+	/**
+	 * Searches every position
+	 * @param threads the number of positions searched at once
+	 */
+	public void search(int threads) throws InterruptedException, ExecutionException
+	{
+		int count = boards.size();
+		hashes = new long[count];
+		scores = new short[count];
+		moves = new byte[count];
+		AtomicInteger next = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<?>> running = new ArrayList<Future<?>>();
+		for (int t = 0; t < threads; t++)
+		{
+			running.add(pool.submit(() ->
+			{
+				SearchEngine engine = new SearchEngine(depth, TABLE_MB);
+				for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement())
+				{
+					BoardState board = boards.get(i);
+					int player = players.get(i);
+					hashes[i] = Zobrist.hash(board, player);
+					moves[i] = (byte) engine.searchToDepth(board, player, depth);
+					scores[i] = (short) (Long.bitCount(board.getLegalMoves(player)) == 1
+							? scoreForced(engine, board, player) : engine.getScore());
+				}
+			}));
+		}
+		for (Future<?> thread : running)
+		{
+			thread.get();
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Scores a position with only one move. The engine plays such a move
+	 * without searching, so the moves are played until there is a choice
+	 * and the position reached is searched to the rest of the depth.
+	 * @return the expected mancala difference for the player
+	 */
+	private int scoreForced(SearchEngine engine, BoardState board, int player)
+	{
+		BoardState child = new BoardState(board);
+		int mover = player;
+		int left = depth;
+		long legal = child.getLegalMoves(mover);
+		while (left > 0 && Long.bitCount(legal) == 1)
+		{
+			int result = child.play(mover, Long.numberOfTrailingZeros(legal));
+			left--;
+			if ((result & BoardState.GAME_OVER) != 0)
+			{
+				left = 0;
+				break;
+			}
+			if ((result & BoardState.FREE_TURN) == 0)
+			{
+				mover = child.nextPlayer(mover);
+			}
+			legal = child.getLegalMoves(mover);
+		}
+		if (left == 0)
+		{
+			return child.getStore(player) - child.getStore(child.nextPlayer(player));
+		}
+		engine.searchToDepth(child, mover, left);
+		return mover == player ? engine.getScore() : -engine.getScore();
+	}
+
+	/**
+	 * Writes the book, sorted by hash, to a file OpeningBook can open
+	 * @param file the path of the file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(String file) throws IOException
+	{
+		Integer[] order = new Integer[hashes.length];
+		for (int i = 0; i < order.length; i++)
+		{
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Long.compare(hashes[a], hashes[b]));
+
+		ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER
+				+ order.length * OpeningBook.ENTRY);
+		buffer.putInt(OpeningBook.MAGIC);
+		buffer.putInt(OpeningBook.VERSION);
+		buffer.putInt(BoardState.PITS);
+		buffer.putInt(order.length);
+		for (int i : order)
+		{
+			buffer.putLong(hashes[i]);
+			buffer.putShort(scores[i]);
+			buffer.put(moves[i]);
+			buffer.put((byte) depth);
+		}
+		buffer.flip();
+		try (FileChannel channel = FileChannel.open(Paths.get(file),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			while (buffer.hasRemaining())
+			{
+				channel.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of positions in the book
+	 * @return the position count
+	 */
+	public int size()
+	{
+		return boards.size();
+	}
+
+	public static void main(String[] args)
+			throws IOException, InterruptedException, ExecutionException
+	{
+		int plies = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+		int depth = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+		String file = args.length > 2 ? args[2] : "opening.book";
+		int threads = args.length > 3 ? Integer.parseInt(args[3])
+				: Runtime.getRuntime().availableProcessors();
+
+		long start = System.nanoTime();
+		OpeningBookBuilder builder = new OpeningBookBuilder(plies, depth);
+		builder.search(threads);
+		builder.write(file);
+		System.out.printf("Searched %d positions within %d plies to depth %d in %.1f s, "
+				+ "wrote %s%n", builder.size(), plies, depth,
+				(System.nanoTime() - start) / 1e9, file);
+	}
+}
@@ -0,0 +1,27 @@
+/**
+ * Provides the PokemonLayout
+ * @author Team7
+ */
+public class PokemonLayoutProvider implements LayoutProvider
+{
+	@Override
+	public String getName() { return "Pokemon Mancala"; }
+
+	@Override
+	public boolean supports(int players, int pits)
+	{
+		return players == 2 && pits == 6;
+	}
+
+	@Override
+	public String[] getImages()
+	{
+		return new String[] { PokemonLayout.BACKGROUND, PokemonLayout.STONE };
+	}
+
+	@Override
+	public Layout create(int players, int pits)
+	{
+		return new PokemonLayout(players, pits);
+	}
+}
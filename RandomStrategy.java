@@ -0,0 +1,35 @@
+import java.util.SplittableRandom;
+
+/**
+ * A strategy that plays any pit that is not empty
+ * @author Team7
+ */
+public class RandomStrategy implements Strategy
+{
+	private final SplittableRandom rand;
+
+	/**
+	 * Constructs a random player
+	 * @param seed the seed of the random number generator
+	 */
+	public RandomStrategy(long seed)
+	{
+		rand = new SplittableRandom(seed);
+	}
+
+	@Override
+	public int choose(BoardState board, int player)
+	{
+		long moves = board.getLegalMoves(player);
+		if (moves == 0)
+		{
+			return -1;
+		}
+		// Drop a random number of the lowest playable pits
+		for (int skip = rand.nextInt(Long.bitCount(moves)); skip > 0; skip--)
+		{
+			moves &= moves - 1;
+		}
+		return Long.numberOfTrailingZeros(moves);
+	}
+}
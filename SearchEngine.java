@@ -0,0 +1,533 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A computer opponent for the standard board that searches the game
+ * tree with negamax and alpha-beta pruning. The search deepens one ply
+ * at a time until the time budget for the move runs out. Moves that
+ * give a free turn or capture are tried first.
+ *
+ * The search plays on its own copies of the board, one per ply, that
+ * are allocated once, so searching does not create garbage. Results are
+ * kept in a transposition table that is shared by every iteration and
+ * every move the engine searches.
+ *
+ * With more than one thread the engine uses Lazy SMP: helper threads
+ * search the same board at staggered depths and share their results
+ * through the lock-free transposition table, so the main thread finds
+ * most of its tree already searched.
+ * @author Team7
+ *
+ */
+public class SearchEngine
+{
+	/** A score larger than any possible mancala difference */
+	public static final int INFINITY = 10000;
+
+	private static final int DEFAULT_MAX_DEPTH = 64;
+	private static final int DEFAULT_TABLE_MB = 16;
+	private static final int CHECK_INTERVAL = 1023;
+
+	private final int maxDepth;
+	private final BoardState[] boards;
+	private final int[][] moves;
+	private final int[][] keys;
+	private final TranspositionTable table;
+	private final AtomicBoolean halt;
+	private final AtomicLong stops = new AtomicLong();
+	private long stopsSeen;
+	private final SearchEngine[] helpers;
+	private final ExecutorService pool;
+	private int startDepth;
+	private EndgameDatabase endgame;
+	private OpeningBook book;
+
+	private long nodes;
+	private long deadline;
+	private boolean stopped;
+
+	private int bestMove;
+	private int bestScore;
+	private int completedDepth;
+
+	/**
+	 * Constructs an engine that searches up to 64 plies deep
+	 */
+	public SearchEngine()
+	{
+		this(DEFAULT_MAX_DEPTH, DEFAULT_TABLE_MB);
+	}
+
+	/**
+	 * Constructs an engine
+	 * @param maxDepth the deepest iteration to search
+	 * @param tableMegabytes the memory used by the transposition table
+	 */
+	public SearchEngine(int maxDepth, int tableMegabytes)
+	{
+		this(maxDepth, tableMegabytes, 1);
+	}
+
+	/**
+	 * Constructs an engine that searches on several threads
+	 * @param maxDepth the deepest iteration to search
+	 * @param tableMegabytes the memory used by the transposition table
+	 * @param threads the number of threads searching each move
+	 */
+	public SearchEngine(int maxDepth, int tableMegabytes, int threads)
+	{
+		this(maxDepth, new TranspositionTable(tableMegabytes), new AtomicBoolean(),
+				threads);
+	}
+
+	/**
+	 * Constructs an engine or one of its helpers
+	 */
+	private SearchEngine(int maxDepth, TranspositionTable table, AtomicBoolean halt,
+			int threads)
+	{
+		if (threads <= 0)
+		{
+			throw new IllegalArgumentException("Thread count must be positive.");
+		}
+		this.maxDepth = maxDepth;
+		this.table = table;
+		this.halt = halt;
+		startDepth = 1;
+		helpers = new SearchEngine[threads - 1];
+		for (int i = 0; i < helpers.length; i++)
+		{
+			helpers[i] = new SearchEngine(maxDepth, table, halt, 1);
+			// Half of the helpers search one ply ahead of the main thread
+			helpers[i].startDepth = 1 + (i + 1) % 2;
+		}
+		pool = helpers.length == 0 ? null : Executors.newFixedThreadPool(helpers.length,
+				task ->
+				{
+					Thread thread = new Thread(task, "search-helper");
+					thread.setDaemon(true);
+					return thread;
+				});
+		boards = new BoardState[maxDepth + 2];
+		moves = new int[maxDepth + 2][BoardState.PITS];
+		keys = new int[maxDepth + 2][BoardState.PITS];
+		for (int i = 0; i < boards.length; i++)
+		{
+			boards[i] = new BoardState(0);
+		}
+	}
+
+	/**
+	 * Finds the best move for a player
+	 * @param root the board to search
+	 * @param player the player to move
+	 * @param millis the time budget in milliseconds
+	 * @return the pit to play, or -1 if the player has no move
+	 */
+	public int search(BoardState root, int player, long millis)
+	{
+		return run(root, player, millis * 1000000L, maxDepth);
+	}
+
+	/**
+	 * Finds the best move for a player by searching to a fixed depth,
+	 * however long it takes
+	 * @param root the board to search
+	 * @param player the player to move
+	 * @param depth the depth to search
+	 * @return the pit to play, or -1 if the player has no move
+	 */
+	public int searchToDepth(BoardState root, int player, int depth)
+	{
+		return run(root, player, 0, Math.min(depth, maxDepth));
+	}
+
+	/**
+	 * Runs the main search and its helpers until they finish or run
+	 * out of time
+	 * @param budget the time budget in nanoseconds, or 0 for none
+	 */
+	private int run(BoardState root, int player, long budget, int depthLimit)
+	{
+		if (!root.isStandard())
+		{
+			throw new IllegalArgumentException("The computer only plays the standard board.");
+		}
+		if (book != null)
+		{
+			// A timed search trusts the book, a fixed depth only if it is as deep
+			int entry = book.find(root, player);
+			if (entry >= 0 && (budget != 0 || book.getDepth(entry) >= depthLimit))
+			{
+				nodes = 0;
+				for (SearchEngine helper : helpers)
+				{
+					helper.nodes = 0;
+				}
+				bestMove = book.getMove(entry);
+				bestScore = book.getScore(entry);
+				completedDepth = book.getDepth(entry);
+				stopsSeen = stops.get();
+				return bestMove;
+			}
+		}
+		long start = System.nanoTime();
+		table.newSearch();
+		halt.set(false);
+		// A stop asked for since the last search ended is meant for this one
+		if (stops.get() != stopsSeen)
+		{
+			halt.set(true);
+		}
+		Future<?>[] running = new Future<?>[helpers.length];
+		for (int i = 0; i < helpers.length; i++)
+		{
+			final SearchEngine helper = helpers[i];
+			running[i] = pool.submit(() ->
+					helper.iterate(root, player, start, budget, depthLimit));
+		}
+
+		int move = iterate(root, player, start, budget, depthLimit);
+		halt.set(true);
+		for (Future<?> helper : running)
+		{
+			try
+			{
+				helper.get();
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException ex)
+			{
+				throw new IllegalStateException("Search helper failed.", ex.getCause());
+			}
+		}
+		stopsSeen = stops.get();
+		return move;
+	}
+
+	/**
+	 * Deepens the search of one thread one ply at a time
+	 */
+	private int iterate(BoardState root, int player, long start, long budget,
+			int depthLimit)
+	{
+		deadline = budget == 0 ? Long.MAX_VALUE : start + budget;
+		stopped = false;
+		nodes = 0;
+		completedDepth = 0;
+		bestScore = 0;
+		bestMove = -1;
+		boards[0].copyFrom(root);
+
+		int count = generate(0, player, -1);
+		if (count == 0)
+		{
+			return -1;
+		}
+		bestMove = moves[0][0];
+		if (count == 1)
+		{
+			return bestMove;
+		}
+
+		for (int depth = startDepth; depth <= depthLimit; depth++)
+		{
+			int score = searchRoot(depth, player);
+			if (stopped)
+			{
+				break;
+			}
+			bestScore = score;
+			completedDepth = depth;
+
+			// Another iteration would take several times longer
+			if (budget != 0 && (System.nanoTime() - start) * 4 > budget)
+			{
+				break;
+			}
+		}
+		return bestMove;
+	}
+
+	/**
+	 * Searches every move of the root board
+	 */
+	private int searchRoot(int depth, int player)
+	{
+		int count = generate(0, player, bestMove);
+		int alpha = -INFINITY;
+		int best = -1;
+		for (int i = 0; i < count; i++)
+		{
+			int score = searchMove(0, moves[0][i], depth, alpha, INFINITY, player);
+			if (stopped)
+			{
+				break;
+			}
+			if (score > alpha)
+			{
+				alpha = score;
+				best = moves[0][i];
+			}
+		}
+		if (best >= 0)
+		{
+			bestMove = best;
+		}
+		return alpha;
+	}
+
+	/**
+	 * Searches a board with negamax and alpha-beta pruning
+	 * @return the score for the player to move
+	 */
+	private int negamax(int ply, int depth, int alpha, int beta, int player)
+	{
+		BoardState board = boards[ply];
+		if ((++nodes & CHECK_INTERVAL) == 0
+				&& (System.nanoTime() > deadline || halt.get()))
+		{
+			stopped = true;
+		}
+		if (stopped)
+		{
+			return 0;
+		}
+		if (endgame != null && endgame.covers(board))
+		{
+			return endgame.probeScore(board, player);
+		}
+		if (depth == 0)
+		{
+			return evaluate(board, player);
+		}
+
+		long hash = Zobrist.hash(board, player);
+		long entry = table.probe(hash);
+		int first = -1;
+		if (entry != TranspositionTable.MISS)
+		{
+			first = TranspositionTable.move(entry);
+			if (TranspositionTable.depth(entry) >= depth)
+			{
+				int score = TranspositionTable.score(entry);
+				int flag = TranspositionTable.flag(entry);
+				if (flag == TranspositionTable.EXACT
+						|| flag == TranspositionTable.LOWER && score >= beta
+						|| flag == TranspositionTable.UPPER && score <= alpha)
+				{
+					return score;
+				}
+			}
+		}
+
+		int originalAlpha = alpha;
+		int count = generate(ply, player, first);
+		int best = -INFINITY;
+		int bestPit = -1;
+		for (int i = 0; i < count; i++)
+		{
+			int score = searchMove(ply, moves[ply][i], depth, alpha, beta, player);
+			if (score > best)
+			{
+				best = score;
+				bestPit = moves[ply][i];
+				if (score > alpha)
+				{
+					alpha = score;
+					if (alpha >= beta)
+					{
+						break;
+					}
+				}
+			}
+		}
+		if (stopped)
+		{
+			return 0;
+		}
+
+		int flag = best <= originalAlpha ? TranspositionTable.UPPER
+				: best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+		table.store(hash, depth, flag, best, bestPit);
+		return best;
+	}
+
+	/**
+	 * Plays one move on the next ply's board and searches the result
+	 * @return the score of the move for the player moving
+	 */
+	private int searchMove(int ply, int pit, int depth, int alpha, int beta, int player)
+	{
+		BoardState child = boards[ply + 1];
+		child.copyFrom(boards[ply]);
+		int result = child.play(player, pit);
+		if ((result & BoardState.GAME_OVER) != 0)
+		{
+			return evaluate(child, player);
+		}
+		if ((result & BoardState.FREE_TURN) != 0)
+		{
+			return negamax(ply + 1, depth - 1, alpha, beta, player);
+		}
+		int opponent = child.nextPlayer(player);
+		return -negamax(ply + 1, depth - 1, -beta, -alpha, opponent);
+	}
+
+	/**
+	 * Scores a board by the difference between the mancalas
+	 */
+	private static int evaluate(BoardState board, int player)
+	{
+		return board.getStore(player) - board.getStore(board.nextPlayer(player));
+	}
+
+	/**
+	 * Lists the playable pits of a ply, best looking first
+	 * @param first a pit to try before every other, or -1
+	 * @return the number of moves
+	 */
+	private int generate(int ply, int player, int first)
+	{
+		BoardState board = boards[ply];
+		int[] list = moves[ply];
+		int[] key = keys[ply];
+		int count = 0;
+		for (long legal = board.getLegalMoves(player); legal != 0; legal &= legal - 1)
+		{
+			int pit = Long.numberOfTrailingZeros(legal);
+			int stones = board.get(player, pit);
+			int k = pit == first ? 1000 : orderKey(board, player, pit, stones);
+
+			// Insertion sort, the list is at most six moves long
+			int j = count++;
+			while (j > 0 && key[j - 1] < k)
+			{
+				list[j] = list[j - 1];
+				key[j] = key[j - 1];
+				j--;
+			}
+			list[j] = pit;
+			key[j] = k;
+		}
+		return count;
+	}
+
+	/**
+	 * Guesses how good a move is without playing it: free turns first,
+	 * then captures by size, then the rest
+	 */
+	private static int orderKey(BoardState board, int player, int pit, int stones)
+	{
+		int cycle = BoardState.SIZE - 1;
+		int landing = (pit + stones) % cycle;
+		if (landing == BoardState.PITS)
+		{
+			return 500;
+		}
+		if (landing < BoardState.PITS)
+		{
+			boolean empty = stones < cycle
+					? landing != pit && board.get(player, landing) == 0
+					: stones == cycle;
+			if (empty)
+			{
+				int across = board.opposite(board.index(player, landing));
+				return 100 + board.getCell(across);
+			}
+		}
+		return pit;
+	}
+
+	/**
+	 * Gets the number of boards searched by the last search
+	 * @return the node count
+	 */
+	public long getNodes()
+	{
+		long total = nodes;
+		for (SearchEngine helper : helpers)
+		{
+			total += helper.nodes;
+		}
+		return total;
+	}
+
+	/**
+	 * Gets the deepest iteration the last search finished
+	 * @return the depth in plies
+	 */
+	public int getCompletedDepth()
+	{
+		return completedDepth;
+	}
+
+	/**
+	 * Gets the score of the last search's best move
+	 * @return the expected mancala difference for the player
+	 */
+	public int getScore()
+	{
+		return bestScore;
+	}
+
+	/**
+	 * Lets the search use exact results once few stones are left
+	 * @param endgame the endgame tables, or null to search to the end
+	 */
+	public void setEndgameDatabase(EndgameDatabase endgame)
+	{
+		this.endgame = endgame;
+		for (SearchEngine helper : helpers)
+		{
+			helper.endgame = endgame;
+		}
+	}
+
+	/**
+	 * Lets the search play straight from an opening book
+	 * @param book the opening book, or null to always search
+	 */
+	public void setOpeningBook(OpeningBook book)
+	{
+		this.book = book;
+	}
+
+	/**
+	 * Gets the number of threads searching each move
+	 * @return the thread count
+	 */
+	public int getThreads()
+	{
+		return helpers.length + 1;
+	}
+
+	/**
+	 * Ends a search running on another thread early, or the next search
+	 * if none is running. The search returns the best move of the
+	 * deepest iteration it finished.
+	 */
+	public void stop()
+	{
+		stops.incrementAndGet();
+		halt.set(true);
+	}
+
+	/**
+	 * Stops the helper threads. The engine must not search afterwards.
+	 */
+	public void shutdown()
+	{
+		if (pool != null)
+		{
+			pool.shutdownNow();
+		}
+	}
+}
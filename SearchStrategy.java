@@ -0,0 +1,27 @@
+/**
+ * A strategy that plays the search engine's move at a fixed depth, so
+ * simulations give the same results on any machine
+ * @author Team7
+ */
+public class SearchStrategy implements Strategy
+{
+	private final SearchEngine engine;
+	private final int depth;
+
+	/**
+	 * Constructs a searching player
+	 * @param depth the depth to search every move to
+	 * @param tableMegabytes the memory used by the transposition table
+	 */
+	public SearchStrategy(int depth, int tableMegabytes)
+	{
+		this.depth = depth;
+		engine = new SearchEngine(depth, tableMegabytes);
+	}
+
+	@Override
+	public int choose(BoardState board, int player)
+	{
+		return engine.searchToDepth(board, player, depth);
+	}
+}
@@ -0,0 +1,224 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A game that players and spectators on different threads can share.
+ * The game is published as a chain of immutable snapshots through an
+ * atomic reference. Reading the current snapshot is a single volatile
+ * read, so spectators never lock and never see a half played move, and
+ * a player is never held up by them.
+ *
+ * A move is played on a copy of the snapshot it was chosen from and
+ * published with compare-and-set. If another move was published first,
+ * the move is not played and CONFLICT is returned, so a player never
+ * moves on a board he has not seen. The rules are the same as Model's,
+ * without undo.
+ * @author Team7
+ */
+public class SharedGame
+{
+	/** Returned by move when the game moved on since the snapshot */
+	public static final int CONFLICT = -2;
+
+	/**
+	 * The state of a shared game after a move. A snapshot never changes.
+	 */
+	public static final class Snapshot
+	{
+		private final BoardState board;
+		private final int active;
+		private final boolean over;
+		private final long version;
+		private final int lastPlayer;
+		private final int lastPit;
+		private final int lastFlags;
+
+		private Snapshot(BoardState board, int active, boolean over, long version,
+				int lastPlayer, int lastPit, int lastFlags)
+		{
+			this.board = board;
+			this.active = active;
+			this.over = over;
+			this.version = version;
+			this.lastPlayer = lastPlayer;
+			this.lastPit = lastPit;
+			this.lastFlags = lastFlags;
+		}
+
+		/**
+		 * Gets the number of moves played before this snapshot
+		 * @return the version, one higher than the snapshot before
+		 */
+		public long getVersion() { return version; }
+
+		/**
+		 * Gets the active player
+		 * @return the player to move, or once the game is over the
+		 * winner, or -1 for a draw
+		 */
+		public int getActive() { return active; }
+
+		/**
+		 * Determines if the game is over
+		 * @return whether the game is over or not
+		 */
+		public boolean isGameEnd() { return over; }
+
+		/**
+		 * Gets the player of the move that led to this snapshot
+		 * @return the player, or -1 for the first snapshot
+		 */
+		public int getLastPlayer() { return lastPlayer; }
+
+		/**
+		 * Gets the pit of the move that led to this snapshot
+		 * @return the pit, or -1 for the first snapshot
+		 */
+		public int getLastPit() { return lastPit; }
+
+		/**
+		 * Gets the result of the move that led to this snapshot
+		 * @return a combination of BoardState.FREE_TURN, CAPTURE and GAME_OVER
+		 */
+		public int getLastFlags() { return lastFlags; }
+
+		/**
+		 * Gets the number of stones in one cell of the board
+		 * @param index a cell index as used by BoardState
+		 * @return the number of stones
+		 */
+		public int getCell(int index)
+		{
+			return board.getCell(index);
+		}
+
+		/**
+		 * Gets the number of pits and mancalas on the board
+		 * @return the number of cells
+		 */
+		public int getCellCount()
+		{
+			return board.getSize();
+		}
+
+		/**
+		 * Gets the number of stones in a player's mancala
+		 * @param player a player
+		 * @return the number of stones
+		 */
+		public int getStore(int player)
+		{
+			return board.getStore(player);
+		}
+
+		/**
+		 * Gets the pits the active player can play
+		 * @return a bitmask with bit i set if pit i can be played, or 0 when
+		 * the game is over
+		 */
+		public long getLegalMoves()
+		{
+			return over ? 0 : board.getLegalMoves(active);
+		}
+
+		/**
+		 * Checks if a player can play a pit in this snapshot
+		 * @param player a player
+		 * @param pit a pit
+		 * @return whether the player is active and the pit has stones
+		 */
+		public boolean isLegalMove(int player, int pit)
+		{
+			return !over && player == active && board.isLegalMove(player, pit);
+		}
+
+		/**
+		 * Get a copy of the board, for example to search
+		 * @return a copy of the packed board
+		 */
+		public BoardState getState()
+		{
+			return new BoardState(board);
+		}
+	}
+
+	private final AtomicReference<Snapshot> current;
+
+	/**
+	 * Shares a new game on the standard board
+	 * @param stones number of stones per pit
+	 */
+	public SharedGame(int stones)
+	{
+		this(new Model(stones));
+	}
+
+	/**
+	 * Shares a game from the position of a Model. The Model is not
+	 * changed by the shared game, nor the shared game by the Model.
+	 * @param game the game to start from
+	 */
+	public SharedGame(Model game)
+	{
+		current = new AtomicReference<Snapshot>(new Snapshot(game.getState(), game.getActive(),
+				game.isGameEnd(), 0, -1, -1, 0));
+	}
+
+	/**
+	 * Gets the game as it is now, without blocking
+	 * @return the latest snapshot
+	 */
+	public Snapshot getSnapshot()
+	{
+		return current.get();
+	}
+
+	/**
+	 * Plays a move chosen from a snapshot, if no other move was played
+	 * since
+	 * @param seen the snapshot the move was chosen from
+	 * @param player the player moving
+	 * @param pit the pit to pick up
+	 * @return a combination of BoardState.FREE_TURN, CAPTURE and
+	 * GAME_OVER, BoardState.ILLEGAL if the move cannot be played in the
+	 * snapshot, or CONFLICT if the snapshot is out of date
+	 */
+	public int move(Snapshot seen, int player, int pit)
+	{
+		if (current.get() != seen)
+		{
+			return CONFLICT;
+		}
+		if (!seen.isLegalMove(player, pit))
+		{
+			return BoardState.ILLEGAL;
+		}
+
+		BoardState board = new BoardState(seen.board);
+		int flags = board.play(player, pit);
+		boolean over = (flags & BoardState.GAME_OVER) != 0;
+		int active = over ? board.winner()
+				: (flags & BoardState.FREE_TURN) != 0 ? player : board.nextPlayer(player);
+		Snapshot next = new Snapshot(board, active, over, seen.version + 1, player, pit, flags);
+		return current.compareAndSet(seen, next) ? flags : CONFLICT;
+	}
+
+	/**
+	 * Plays a move on the game as it is now, trying again while other
+	 * moves get in first and the move is still legal
+	 * @param player the player moving
+	 * @param pit the pit to pick up
+	 * @return a combination of BoardState.FREE_TURN, CAPTURE and
+	 * GAME_OVER, or BoardState.ILLEGAL if the move cannot be played
+	 */
+	public int move(int player, int pit)
+	{
+		while (true)
+		{
+			int result = move(current.get(), player, pit);
+			if (result != CONFLICT)
+			{
+				return result;
+			}
+		}
+	}
+}
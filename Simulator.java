@@ -0,0 +1,336 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays many games between two strategies without a GUI and reports
+ * throughput, win rates and the distribution of final scores. Games are
+ * played on BoardState directly, so no Swing classes are loaded, and are
+ * spread over all cores. The strategies swap seats every game.
+ *
+ * Strategies are named random, greedy, search:depth or mcts:playouts.
+ * Given a file, every game is also written to it for GameReplay or
+ * later analysis.
+ *
+ * Usage: java Simulator [games] [strategy A] [strategy B] [stones] [threads] [seed] [record file]
+ * @author Team7
+ */
+public class Simulator
+{
+	private static final int SEARCH_TABLE_MB = 8;
+	private static final int MCTS_ARENA_MB = 8;
+
+	private final String specA;
+	private final String specB;
+	private final int stones;
+	private final int threads;
+	private final long seed;
+	private GameRecordWriter recorder;
+
+	/**
+	 * The results of a share of the games
+	 */
+	private static class Tally
+	{
+		long wins;
+		long draws;
+		long losses;
+		long moves;
+		long[] margins;
+
+		Tally(int maxMargin)
+		{
+			margins = new long[2 * maxMargin + 1];
+		}
+
+		void add(Tally other)
+		{
+			wins += other.wins;
+			draws += other.draws;
+			losses += other.losses;
+			moves += other.moves;
+			for (int i = 0; i < margins.length; i++)
+			{
+				margins[i] += other.margins[i];
+			}
+		}
+
+		long games()
+		{
+			return wins + draws + losses;
+		}
+	}
+
+	/**
+	 * Constructs a simulator
+	 * @param specA the strategy reported on
+	 * @param specB the opposing strategy
+	 * @param stones the initial number of stones per pit
+	 * @param threads the number of games played at once
+	 * @param seed the seed of the random strategies
+	 */
+	public Simulator(String specA, String specB, int stones, int threads, long seed)
+	{
+		// Fail early on a bad name rather than on every thread
+		create(specA, 0);
+		create(specB, 0);
+		this.specA = specA;
+		this.specB = specB;
+		this.stones = stones;
+		this.threads = threads;
+		this.seed = seed;
+	}
+
+	/**
+	 * Makes a strategy from its name
+	 * @param spec random, greedy, search:depth or mcts:playouts
+	 * @param seed the seed for a random strategy
+	 * @return a new strategy
+	 */
+	public static Strategy create(String spec, long seed)
+	{
+		if (spec.equals("random"))
+		{
+			return new RandomStrategy(seed);
+		}
+		if (spec.equals("greedy"))
+		{
+			return new GreedyStrategy();
+		}
+		if (spec.startsWith("search:"))
+		{
+			int depth = Integer.parseInt(spec.substring("search:".length()));
+			return new SearchStrategy(depth, SEARCH_TABLE_MB);
+		}
+		if (spec.startsWith("mcts:"))
+		{
+			long playouts = Long.parseLong(spec.substring("mcts:".length()));
+			return new MonteCarloStrategy(playouts, MCTS_ARENA_MB, seed);
+		}
+		throw new IllegalArgumentException("Unknown strategy: " + spec);
+	}
+
+	/**
+	 * Plays a number of games on every thread and adds up the results
+	 * @param games the total number of games
+	 * @return the results from strategy A's point of view
+	 */
+	private Tally run(long games) throws InterruptedException, ExecutionException
+	{
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<Tally>> shares = new ArrayList<Future<Tally>>();
+		for (int t = 0; t < threads; t++)
+		{
+			final int thread = t;
+			final long share = games / threads + (t < games % threads ? 1 : 0);
+			shares.add(pool.submit(() -> play(thread, share)));
+		}
+		Tally total = new Tally(maxMargin());
+		for (Future<Tally> share : shares)
+		{
+			total.add(share.get());
+		}
+		pool.shutdown();
+		return total;
+	}
+
+	/**
+	 * Plays one thread's share of the games
+	 */
+	private Tally play(int thread, long games)
+	{
+		Strategy[] seats = new Strategy[2];
+		Strategy a = create(specA, seed + 2 * thread);
+		Strategy b = create(specB, seed + 2 * thread + 1);
+		BoardState start = new BoardState(stones);
+		BoardState board = new BoardState(start);
+		Tally tally = new Tally(maxMargin());
+		byte[] record = new byte[256];
+
+		for (long g = 0; g < games; g++)
+		{
+			int seatA = (int) (g & 1);
+			seats[seatA] = a;
+			seats[1 - seatA] = b;
+			board.copyFrom(start);
+			int player = 0;
+			int result = 0;
+			int count = 0;
+			while ((result & BoardState.GAME_OVER) == 0)
+			{
+				int pit = seats[player].choose(board, player);
+				result = board.play(player, pit);
+				tally.moves++;
+				if (recorder != null)
+				{
+					if (count == record.length)
+					{
+						record = Arrays.copyOf(record, count * 2);
+					}
+					record[count++] = GameRecordWriter.encode(player, pit);
+				}
+				if ((result & BoardState.FREE_TURN) == 0)
+				{
+					player = board.nextPlayer(player);
+				}
+			}
+
+			if (recorder != null)
+			{
+				try
+				{
+					recorder.writeGame(BoardState.PLAYERS, BoardState.PITS, stones, record, count);
+				}
+				catch (IOException ex)
+				{
+					throw new UncheckedIOException(ex);
+				}
+			}
+
+			int margin = board.getStore(seatA) - board.getStore(1 - seatA);
+			tally.margins[margin + maxMargin()]++;
+			if (margin > 0)
+			{
+				tally.wins++;
+			}
+			else if (margin < 0)
+			{
+				tally.losses++;
+			}
+			else
+			{
+				tally.draws++;
+			}
+		}
+		return tally;
+	}
+
+	/**
+	 * Gets the largest possible difference between the mancalas
+	 */
+	private int maxMargin()
+	{
+		return BoardState.PLAYERS * BoardState.PITS * stones;
+	}
+
+	/**
+	 * Prints the report of a finished run
+	 */
+	private void report(Tally tally, double seconds)
+	{
+		long games = tally.games();
+		String a = specA;
+		String b = specB;
+		System.out.printf("%s vs %s, %d stones, %d games on %d threads in %.2f s%n",
+				a, b, stones, games, threads, seconds);
+		System.out.printf("throughput: %.0f games/s, %.0f moves/s, %.1f moves/game%n",
+				games / seconds, tally.moves / seconds, (double) tally.moves / games);
+		printRate(a + " wins", tally.wins, games);
+		printRate("draws", tally.draws, games);
+		printRate(b + " wins", tally.losses, games);
+
+		// Summary of the final margin, from strategy A's point of view
+		double sum = 0;
+		double squares = 0;
+		for (int i = 0; i < tally.margins.length; i++)
+		{
+			int margin = i - maxMargin();
+			sum += (double) margin * tally.margins[i];
+			squares += (double) margin * margin * tally.margins[i];
+		}
+		double mean = sum / games;
+		System.out.printf("margin (%s - %s): mean %.2f, stddev %.2f, "
+				+ "min %d, p5 %d, median %d, p95 %d, max %d%n", a, b, mean,
+				Math.sqrt(squares / games - mean * mean), percentile(tally, 0),
+				percentile(tally, 0.05), percentile(tally, 0.5),
+				percentile(tally, 0.95), percentile(tally, 1));
+
+		// Histogram in buckets of four stones
+		long widest = 0;
+		for (long count : tally.margins)
+		{
+			widest = Math.max(widest, count);
+		}
+		int lo = percentile(tally, 0);
+		int hi = percentile(tally, 1);
+		for (int start = lo - Math.floorMod(lo, 4); start <= hi; start += 4)
+		{
+			long count = 0;
+			for (int m = start; m < start + 4; m++)
+			{
+				if (m >= -maxMargin() && m <= maxMargin())
+				{
+					count += tally.margins[m + maxMargin()];
+				}
+			}
+			System.out.printf("%4d..%-4d %10d %s%n", start, start + 3, count,
+					"#".repeat((int) (50 * count / Math.max(1, widest * 4))));
+		}
+	}
+
+	/**
+	 * Prints a rate with its 95% Wilson score interval
+	 */
+	private static void printRate(String label, long hits, long games)
+	{
+		double z = 1.96;
+		double p = (double) hits / games;
+		double denominator = 1 + z * z / games;
+		double centre = (p + z * z / (2 * games)) / denominator;
+		double spread = z * Math.sqrt(p * (1 - p) / games + z * z / (4.0 * games * games))
+				/ denominator;
+		System.out.printf("%-16s %10d  %6.2f%%  95%% CI [%.2f%%, %.2f%%]%n", label + ":",
+				hits, 100 * p, 100 * (centre - spread), 100 * (centre + spread));
+	}
+
+	/**
+	 * Finds the margin below which a fraction of the games fall
+	 */
+	private int percentile(Tally tally, double fraction)
+	{
+		long target = Math.max(1, (long) Math.ceil(fraction * tally.games()));
+		long seen = 0;
+		for (int i = 0; i < tally.margins.length; i++)
+		{
+			seen += tally.margins[i];
+			if (seen >= target)
+			{
+				return i - maxMargin();
+			}
+		}
+		return maxMargin();
+	}
+
+	public static void main(String[] args)
+			throws InterruptedException, ExecutionException, IOException
+	{
+		long games = args.length > 0 ? Long.parseLong(args[0]) : 1000000;
+		String a = args.length > 1 ? args[1] : "greedy";
+		String b = args.length > 2 ? args[2] : "random";
+		int stones = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+		int threads = args.length > 4 ? Integer.parseInt(args[4])
+				: Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+
+		Simulator simulator = new Simulator(a, b, stones, threads, seed);
+		if (args.length > 6)
+		{
+			simulator.recorder = new GameRecordWriter(args[6]);
+		}
+		long start = System.nanoTime();
+		Tally tally = simulator.run(games);
+		simulator.report(tally, (System.nanoTime() - start) / 1e9);
+		if (simulator.recorder != null)
+		{
+			simulator.recorder.close();
+			System.out.println("recorded " + simulator.recorder.getGames() + " games in "
+					+ args[6]);
+		}
+	}
+}
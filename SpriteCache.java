@@ -0,0 +1,82 @@
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.*;
+
+/**
+ * A cache of pre-drawn piles of stones. Each pile is drawn once into an
+ * image the size of its pit or mancala, with every stone placed exactly
+ * where drawing them one at a time would put it, so a repaint costs one
+ * image per pit whatever the number of stones. The least recently used
+ * piles are dropped once the cache is full.
+ * @author Team7
+ *
+ */
+public class SpriteCache
+{
+	private final Image stone;
+	private final Map<Long, BufferedImage> sprites;
+	private final Random rand = new Random();
+
+	/**
+	 * Constructs a cache
+	 * @param stone the image of one stone
+	 * @param capacity the most piles to keep
+	 */
+	public SpriteCache(Image stone, final int capacity)
+	{
+		this.stone = stone;
+		sprites = new LinkedHashMap<Long, BufferedImage>(capacity, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest)
+			{
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Gets the image of a pile of stones, drawing it if needed
+	 * @param r the bounding box of the pit or mancala
+	 * @param count the number of stones
+	 * @return an image the size of the bounding box
+	 */
+	public Image get(Rectangle2D.Double r, int count)
+	{
+		// Pack the box and the count into one key, 12 bits per coordinate
+		long key = ((long) (int) r.getX() & 0xFFF) << 52 | ((long) (int) r.getY() & 0xFFF) << 40
+				| ((long) (int) r.getWidth() & 0xFFF) << 28
+				| ((long) (int) r.getHeight() & 0xFFF) << 16 | (count & 0xFFFF);
+		BufferedImage sprite = sprites.get(key);
+		if (sprite == null)
+		{
+			sprite = draw(r, count);
+			sprites.put(key, sprite);
+		}
+		return sprite;
+	}
+
+	/**
+	 * Draws a pile of stones into a new transparent image
+	 */
+	private BufferedImage draw(Rectangle2D.Double r, int count)
+	{
+		BufferedImage sprite = ImageCache.createImage((int) r.getWidth(), (int) r.getHeight(),
+				Transparency.TRANSLUCENT);
+		Graphics g = sprite.createGraphics();
+		int w = stone.getWidth(null);
+		int h = stone.getHeight(null);
+		for (int n = 0; n < count; n++)
+		{
+			rand.setSeed((int) r.getX() * n + (int) r.getY() * n + n * n);
+			int x = rand.nextInt((int) r.getWidth() - w);
+			int y = rand.nextInt((int) r.getHeight() - h);
+			g.drawImage(stone, x, y, w, h, null);
+		}
+		g.dispose();
+		return sprite;
+	}
+}
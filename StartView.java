@@ -2,6 +2,7 @@ import java.awt.Container;
 import java.awt.FlowLayout;
 import java.awt.Frame;
 import java.awt.event.*;
+import java.util.List;
 import javax.swing.*;
 
 /**
@@ -15,26 +16,30 @@ public class StartView extends JDialog
 	private static final long serialVersionUID = 1L;
 	private Container frame;
 	private int stoneCount;
-	private Layout[] layouts;
-	private Layout layout;
+	private boolean computer;
+	private List<LayoutProvider> layouts;
+	private LayoutProvider layout;
 	private int width = 380;
-	private int height = 250;
+	private int height = 290;
 
 	/**
 	 * Creates a popup dialog to choose number of stones and the layout
 	 * @param owner a frame for the dialog
+	 * @param layouts the layouts to choose from
 	 */
-	public StartView(Frame f, Layout[] layouts)
+	public StartView(Frame f, List<LayoutProvider> layouts)
 	{
 		super(f, true);
 		stoneCount = 3;
+		computer = false;
 		this.layouts = layouts;
-		layout = layouts[0];
+		layout = layouts.get(0);
 
 		frame = getContentPane();
 		setSize(width,height);
 		JPanel stonePanel = new JPanel();
 		JPanel layoutPanel = new JPanel();
+		JPanel opponentPanel = new JPanel();
 		JLabel pic = new JLabel();
 		
 		ImageIcon logo = new ImageIcon("resources/logo.png");
@@ -53,13 +58,24 @@ public class StartView extends JDialog
 		stonePanel.add(four);
 		stoneGroup.add(four);
 
+		JLabel chooseOpponent = new JLabel("Player 2: ");
+
+		JRadioButton human = new JRadioButton("Human", true);
+		JRadioButton engine = new JRadioButton("Computer");
+		ButtonGroup opponentGroup = new ButtonGroup();
+
+		opponentPanel.add(human);
+		opponentGroup.add(human);
+		opponentPanel.add(engine);
+		opponentGroup.add(engine);
+
 		JLabel chooseLayout = new JLabel("Choose a layout: ");
 
-		JRadioButton[] layoutButtons  = new JRadioButton[layouts.length];
+		JRadioButton[] layoutButtons  = new JRadioButton[layouts.size()];
 		ButtonGroup layoutGroup = new ButtonGroup();
-		for (int i = 0; i < layouts.length; i++)
+		for (int i = 0; i < layouts.size(); i++)
 		{
-			layoutButtons[i] = new JRadioButton(layouts[i].getName(), i == 0);
+			layoutButtons[i] = new JRadioButton(layouts.get(i).getName(), i == 0);
 			layoutPanel.add(layoutButtons[i]);
 			layoutGroup.add(layoutButtons[i]);
 			layoutButtons[i].addActionListener(setLayout(i));
@@ -72,6 +88,8 @@ public class StartView extends JDialog
 		
 		three.addActionListener(setStoneCount(3));
 		four.addActionListener(setStoneCount(4));
+		human.addActionListener(setOpponent(false));
+		engine.addActionListener(setOpponent(true));
 		start.addActionListener(event ->
 			{
 				frame.setVisible(false);
@@ -86,6 +104,11 @@ public class StartView extends JDialog
 		box1.add(Box.createHorizontalStrut(135));
 		box1.add(stonePanel);
 
+		// opponent choices
+		Box boxOpponent = Box.createHorizontalBox();
+		boxOpponent.add(Box.createHorizontalStrut(40));
+		boxOpponent.add(opponentPanel);
+
 		// layout choices
 		Box box2 = Box.createVerticalBox();
 		box2.add(layoutPanel);
@@ -105,6 +128,8 @@ public class StartView extends JDialog
 		frame.add(ic);
 		frame.add(chooseStones);
 		frame.add(box1);
+		frame.add(chooseOpponent);
+		frame.add(boxOpponent);
 		frame.add(chooseLayout);
 		frame.add(box2);
 		frame.add(box3);
@@ -138,6 +163,23 @@ public class StartView extends JDialog
 		};
 	}
 
+	/**
+	 * A listener to choose who plays player 2
+	 * @param againstComputer whether the computer plays player 2
+	 * @return an anonymous ActionListener class
+	 */
+	public ActionListener setOpponent(final boolean againstComputer)
+	{
+		return new
+				ActionListener()
+		{
+			public void actionPerformed(ActionEvent event)
+			{
+				computer = againstComputer;
+			}
+		};
+	}
+
 	/**
 	 * A listener to choose the layout
 	 * @param layoutNumber the layout number
@@ -150,7 +192,7 @@ public class StartView extends JDialog
 		{
 			public void actionPerformed(ActionEvent event)
 			{
-				layout = layouts[layoutNumber];
+				layout = layouts.get(layoutNumber);
 			}
 		};
 	}
@@ -164,11 +206,20 @@ public class StartView extends JDialog
 		return stoneCount;
 	}
 
+	/**
+	 * Checks if the computer plays player 2
+	 * @return whether player 2 is the computer
+	 */
+	public boolean isComputerOpponent()
+	{
+		return computer;
+	}
+
 	/**
 	 * Gets the layout selected in the dialog
-	 * @return BoardLayout to use
+	 * @return the provider of the layout to use
 	 */
-	public Layout getSelectedLayout()
+	public LayoutProvider getSelectedLayout()
 	{
 		return layout;
 	}
@@ -0,0 +1,15 @@
+/**
+ * A way of choosing moves for the headless simulator. A strategy may
+ * keep state between moves, so each thread plays with its own instance.
+ * @author Team7
+ */
+public interface Strategy
+{
+	/**
+	 * Chooses a move
+	 * @param board the current board, which must not be changed
+	 * @param player the player to move
+	 * @return a pit of the player that is not empty
+	 */
+	int choose(BoardState board, int player);
+}
@@ -0,0 +1,182 @@
+import java.util.Arrays;
+
+/**
+ * A fixed size table of search results keyed by Zobrist hash. The table
+ * is made of buckets of two entries: the first keeps the deepest result,
+ * the second is always replaced. Entries are packed into primitive
+ * arrays, so the table never allocates after it is built.
+ *
+ * The table outlives a single search, so results are reused by later
+ * iterations and later moves. Every search starts a new generation,
+ * and results of older generations give up their place to new ones.
+ *
+ * Several search threads may share one table without locking. Each key
+ * is stored exclusive-ored with its entry, so an entry torn by two
+ * threads writing at once no longer matches its key and reads as a miss.
+ * @author Team7
+ *
+ */
+public class TranspositionTable
+{
+	/** The score is exact */
+	public static final int EXACT = 0;
+	/** The score is at least the stored value */
+	public static final int LOWER = 1;
+	/** The score is at most the stored value */
+	public static final int UPPER = 2;
+
+	/** Returned by probe when the board is not in the table */
+	public static final long MISS = 0;
+
+	private static final int ENTRY_BYTES = 16;
+	private static final long VALID = 1L << 63;
+
+	private final long[] keys;
+	private final long[] data;
+	private final int mask;
+	private int generation;
+
+	/**
+	 * Constructs a table
+	 * @param megabytes the most memory the table may use
+	 */
+	public TranspositionTable(int megabytes)
+	{
+		if (megabytes <= 0)
+		{
+			throw new IllegalArgumentException("Table size must be positive.");
+		}
+		long entries = (long) megabytes * 1024 * 1024 / ENTRY_BYTES;
+		int buckets = Integer.highestOneBit((int) Math.min(entries / 2, 1 << 29));
+		keys = new long[buckets * 2];
+		data = new long[buckets * 2];
+		mask = buckets - 1;
+	}
+
+	/**
+	 * Starts a new search so older results may be replaced
+	 */
+	public void newSearch()
+	{
+		generation = (generation + 1) & 0xFF;
+	}
+
+	/**
+	 * Forgets every result
+	 */
+	public void clear()
+	{
+		Arrays.fill(keys, 0);
+		Arrays.fill(data, 0);
+	}
+
+	/**
+	 * Looks up a board
+	 * @param hash the board's hash
+	 * @return the packed entry, or MISS
+	 */
+	public long probe(long hash)
+	{
+		int slot = ((int) hash & mask) << 1;
+		long entry = data[slot];
+		if (entry != MISS && (keys[slot] ^ entry) == hash)
+		{
+			return entry;
+		}
+		entry = data[slot + 1];
+		if (entry != MISS && (keys[slot + 1] ^ entry) == hash)
+		{
+			return entry;
+		}
+		return MISS;
+	}
+
+	/**
+	 * Saves a search result
+	 * @param hash the board's hash
+	 * @param depth the depth searched
+	 * @param flag EXACT, LOWER or UPPER
+	 * @param score the score found
+	 * @param move the best pit found, or -1
+	 */
+	public void store(long hash, int depth, int flag, int score, int move)
+	{
+		int slot = ((int) hash & mask) << 1;
+		long old = data[slot];
+		if ((keys[slot] ^ old) != hash && old != MISS && depth(old) > depth
+				&& generation(old) == generation)
+		{
+			// The deep entry is worth more, use the always replace entry
+			slot++;
+		}
+		long entry = pack(depth, flag, score, move);
+		keys[slot] = hash ^ entry;
+		data[slot] = entry;
+	}
+
+	/**
+	 * Gets the depth of an entry
+	 * @param entry a packed entry
+	 * @return the depth searched
+	 */
+	public static int depth(long entry)
+	{
+		return (int) (entry & 0xFF);
+	}
+
+	/**
+	 * Gets the bound type of an entry
+	 * @param entry a packed entry
+	 * @return EXACT, LOWER or UPPER
+	 */
+	public static int flag(long entry)
+	{
+		return (int) (entry >>> 8) & 0x3;
+	}
+
+	/**
+	 * Gets the score of an entry
+	 * @param entry a packed entry
+	 * @return the score
+	 */
+	public static int score(long entry)
+	{
+		return (short) (entry >>> 16);
+	}
+
+	/**
+	 * Gets the best move of an entry
+	 * @param entry a packed entry
+	 * @return the pit, or -1
+	 */
+	public static int move(long entry)
+	{
+		return (int) ((entry >>> 32) & 0xFF) - 1;
+	}
+
+	/**
+	 * Gets the search that wrote an entry
+	 */
+	private static int generation(long entry)
+	{
+		return (int) (entry >>> 40) & 0xFF;
+	}
+
+	/**
+	 * Packs a result into one long
+	 */
+	private long pack(int depth, int flag, int score, int move)
+	{
+		return VALID | (long) generation << 40 | (long) (move + 1) << 32
+				| (long) (score & 0xFFFF) << 16 | flag << 8 | depth;
+	}
+
+	/**
+	 * Gets the number of entries in the table
+	 * @return the capacity
+	 */
+	public int capacity()
+	{
+		return keys.length;
+	}
+}
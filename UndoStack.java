@@ -0,0 +1,180 @@
+/**
+ * A fixed size undo/redo history of board states. The states are kept
+ * in a ring buffer of packed cells, so pushing and popping are constant
+ * time and never allocate. When the buffer is full the oldest state is
+ * overwritten.
+ *
+ * Every state carries an integer tag that the owner can use to store
+ * extra information, such as the active player.
+ * @author Team7
+ *
+ */
+public class UndoStack
+{
+	private final int[] frames;
+	private final int depth;
+	private final int cells;
+	private final int frame;
+	private int start;
+	private int cursor;
+	private int count;
+
+	/**
+	 * Constructs an empty history of standard boards
+	 * @param depth the maximum number of states kept
+	 */
+	public UndoStack(int depth)
+	{
+		this(depth, BoardState.SIZE);
+	}
+
+	/**
+	 * Constructs an empty history
+	 * @param depth the maximum number of states kept
+	 * @param cells the number of cells of the boards saved
+	 */
+	public UndoStack(int depth, int cells)
+	{
+		if (depth <= 0)
+		{
+			throw new IllegalArgumentException("Undo depth must be positive.");
+		}
+		this.depth = depth;
+		this.cells = cells;
+		frame = cells + 1;
+		frames = new int[depth * frame];
+	}
+
+	/**
+	 * Saves a state before a move is made. Any states that could
+	 * have been redone are discarded.
+	 * @param state the state to save
+	 * @param tag extra information to save with the state
+	 */
+	public void push(BoardState state, int tag)
+	{
+		if (cursor == depth)
+		{
+			start = (start + 1) % depth;
+			cursor--;
+		}
+		int offset = offset(cursor);
+		state.save(frames, offset);
+		frames[offset + cells] = tag;
+		cursor++;
+		count = cursor;
+	}
+
+	/**
+	 * Steps back to the last saved state. The current state is kept so
+	 * that it can be redone.
+	 * @param state the current state, replaced by the saved state
+	 * @param tag the tag of the current state
+	 * @return the tag of the saved state
+	 */
+	public int undo(BoardState state, int tag)
+	{
+		if (!canUndo())
+		{
+			throw new IllegalStateException("Nothing to undo.");
+		}
+		cursor--;
+		return exchange(state, tag);
+	}
+
+	/**
+	 * Steps forward to the last undone state
+	 * @param state the current state, replaced by the undone state
+	 * @param tag the tag of the current state
+	 * @return the tag of the undone state
+	 */
+	public int redo(BoardState state, int tag)
+	{
+		if (!canRedo())
+		{
+			throw new IllegalStateException("Nothing to redo.");
+		}
+		int saved = exchange(state, tag);
+		cursor++;
+		return saved;
+	}
+
+	/**
+	 * Gets the tag of the state that undo would step back to
+	 * @return the saved tag
+	 */
+	public int peek()
+	{
+		if (!canUndo())
+		{
+			throw new IllegalStateException("Nothing to undo.");
+		}
+		return frames[offset(cursor - 1) + cells];
+	}
+
+	/**
+	 * Checks if there is a state to step back to
+	 * @return whether undo is possible
+	 */
+	public boolean canUndo()
+	{
+		return cursor > 0;
+	}
+
+	/**
+	 * Checks if there is an undone state to step forward to
+	 * @return whether redo is possible
+	 */
+	public boolean canRedo()
+	{
+		return cursor < count;
+	}
+
+	/**
+	 * Gets the number of states that can be undone
+	 * @return the undo count
+	 */
+	public int size()
+	{
+		return cursor;
+	}
+
+	/**
+	 * Gets the maximum number of states kept
+	 * @return the depth of the history
+	 */
+	public int getDepth()
+	{
+		return depth;
+	}
+
+	/**
+	 * Forgets every saved state
+	 */
+	public void clear()
+	{
+		start = 0;
+		cursor = 0;
+		count = 0;
+	}
+
+	/**
+	 * Swaps the state at the cursor with the current state
+	 */
+	private int exchange(BoardState state, int tag)
+	{
+		int offset = offset(cursor);
+		state.exchange(frames, offset);
+		int saved = frames[offset + cells];
+		frames[offset + cells] = tag;
+		return saved;
+	}
+
+	/**
+	 * Gets the position of a frame in the buffer
+	 */
+	private int offset(int index)
+	{
+		return ((start + index) % depth) * frame;
+	}
+}
@@ -0,0 +1,68 @@
+import java.util.Random;
+
+/**
+ * Zobrist hashing of mancala boards. Every (cell, stone count) pair and
+ * the side to move have a random 64 bit key, and a board's hash is the
+ * exclusive or of the keys that apply to it.
+ * @author Team7
+ *
+ */
+public final class Zobrist
+{
+	private static final int COUNTS = 128;
+	private static final long SEED = 0x4D414E43414C41L;
+
+	private static final long[][] KEYS = new long[BoardState.SIZE][COUNTS];
+	private static final long SIDE;
+
+	static
+	{
+		Random rand = new Random(SEED);
+		for (int i = 0; i < BoardState.SIZE; i++)
+		{
+			// An empty cell adds nothing to the hash
+			for (int j = 1; j < COUNTS; j++)
+			{
+				KEYS[i][j] = rand.nextLong();
+			}
+		}
+		SIDE = rand.nextLong();
+	}
+
+	private Zobrist() { }
+
+	/**
+	 * Hashes a board and the player to move
+	 * @param board the board, including both mancalas
+	 * @param player the player to move
+	 * @return the 64 bit hash
+	 */
+	public static long hash(BoardState board, int player)
+	{
+		long hash = player == 0 ? 0 : SIDE;
+		for (int i = 0; i < BoardState.SIZE; i++)
+		{
+			hash ^= key(i, board.getCell(i));
+		}
+		return hash;
+	}
+
+	/**
+	 * Gets the key of a cell holding some stones
+	 * @param cell a cell index
+	 * @param count the number of stones in the cell
+	 * @return the key
+	 */
+	public static long key(int cell, int count)
+	{
+		if (count < COUNTS)
+		{
+			return KEYS[cell][count];
+		}
+		// Boards with huge piles are rare, mix a key for them instead
+		long z = (cell * 0x9E3779B97F4A7C15L) ^ (count * 0xBF58476D1CE4E5B9L);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,96 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Method handles onto the game's classes. The game lives in the default
+ * package, which classes in a named package cannot refer to, and JMH
+ * refuses benchmarks in the default package. The handles are constant,
+ * so the JIT inlines them and calls cost the same as direct calls. They
+ * also reach Model's private preUndo and checkAllPit.
+ */
+final class Handles
+{
+	static final MethodHandle NEW_MODEL;
+	static final MethodHandle MOVE;
+	static final MethodHandle UNDO;
+	static final MethodHandle REDO;
+	static final MethodHandle IS_UNDOABLE;
+	static final MethodHandle IS_GAME_END;
+	static final MethodHandle GET_ACTIVE;
+	static final MethodHandle GET_PITS;
+	static final MethodHandle GET_MANCALAS;
+	static final MethodHandle PRE_UNDO;
+	static final MethodHandle CHECK_ALL_PIT;
+	static final MethodHandle PIT_COUNT;
+	static final MethodHandle NEW_BOARD;
+	static final MethodHandle PLAY;
+
+	static
+	{
+		try
+		{
+			Class<?> model = Class.forName("Model");
+			Class<?> board = Class.forName("BoardState");
+			Class<?> pit = Class.forName("Pit");
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			MethodHandles.Lookup inside = MethodHandles.privateLookupIn(model,
+					MethodHandles.lookup());
+
+			NEW_MODEL = lookup.findConstructor(model, MethodType.methodType(void.class, int.class))
+					.asType(MethodType.methodType(Object.class, int.class));
+			MOVE = erase(lookup.findVirtual(model, "move",
+					MethodType.methodType(void.class, int.class, int.class)));
+			UNDO = erase(lookup.findVirtual(model, "undo", MethodType.methodType(void.class)));
+			REDO = erase(lookup.findVirtual(model, "redo", MethodType.methodType(void.class)));
+			IS_UNDOABLE = erase(lookup.findVirtual(model, "isUndoable",
+					MethodType.methodType(boolean.class)));
+			IS_GAME_END = erase(lookup.findVirtual(model, "isGameEnd",
+					MethodType.methodType(boolean.class)));
+			GET_ACTIVE = erase(lookup.findVirtual(model, "getActive",
+					MethodType.methodType(int.class)));
+			GET_PITS = erase(lookup.findVirtual(model, "getPits",
+					MethodType.methodType(pit.arrayType().arrayType())));
+			GET_MANCALAS = erase(lookup.findVirtual(model, "getMancalas",
+					MethodType.methodType(int[].class)));
+			PRE_UNDO = erase(inside.findVirtual(model, "preUndo",
+					MethodType.methodType(void.class)));
+			CHECK_ALL_PIT = erase(inside.findVirtual(model, "checkAllPit",
+					MethodType.methodType(void.class)));
+			PIT_COUNT = erase(lookup.findVirtual(pit, "getCount",
+					MethodType.methodType(int.class)));
+			NEW_BOARD = lookup.findConstructor(board, MethodType.methodType(void.class, int.class))
+					.asType(MethodType.methodType(Object.class, int.class));
+			PLAY = erase(lookup.findVirtual(board, "play",
+					MethodType.methodType(int.class, int.class, int.class)));
+		}
+		catch (ReflectiveOperationException ex)
+		{
+			throw new ExceptionInInitializerError(ex);
+		}
+	}
+
+	private Handles() { }
+
+	/**
+	 * Replaces the game's types in a handle's signature with Object
+	 */
+	private static MethodHandle erase(MethodHandle handle)
+	{
+		MethodType type = handle.type();
+		for (int i = 0; i < type.parameterCount(); i++)
+		{
+			if (!type.parameterType(i).isPrimitive())
+			{
+				type = type.changeParameterType(i, Object.class);
+			}
+		}
+		if (!type.returnType().isPrimitive())
+		{
+			type = type.changeReturnType(Object.class);
+		}
+		return handle.asType(type);
+	}
+}
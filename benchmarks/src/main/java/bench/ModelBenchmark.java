@@ -0,0 +1,169 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of Model's move generation and game play from both
+ * starting boards. Moves are replayed from random games recorded during
+ * setup, so every run plays the same positions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark
+{
+	private static final int GAMES = 1024;
+
+	@Param({ "3", "4" })
+	public int stones;
+
+	/** Recorded games, each move packed as player * 8 + pit */
+	private int[][] games;
+
+	/** A game in progress for the single move benchmarks */
+	private Object model;
+	private int game;
+	private int ply;
+
+	/** A board in the middle of a game */
+	private Object middle;
+
+	@Setup(Level.Trial)
+	public void record() throws Throwable
+	{
+		SplittableRandom rand = new SplittableRandom(42);
+		games = new int[GAMES][];
+		int[] moves = new int[1024];
+		for (int g = 0; g < GAMES; g++)
+		{
+			Object m = Handles.NEW_MODEL.invokeExact(stones);
+			int count = 0;
+			while (!(boolean) Handles.IS_GAME_END.invokeExact(m))
+			{
+				int player = (int) Handles.GET_ACTIVE.invokeExact(m);
+				Object pits = (Object) Handles.GET_PITS.invokeExact(m);
+				Object[] row = (Object[]) ((Object[]) pits)[player];
+				int pit;
+				do
+				{
+					pit = rand.nextInt(row.length);
+				}
+				while ((int) Handles.PIT_COUNT.invokeExact(row[pit]) == 0);
+				Handles.MOVE.invokeExact(m, player, pit);
+				moves[count++] = player * 8 + pit;
+			}
+			games[g] = Arrays.copyOf(moves, count);
+		}
+
+		middle = Handles.NEW_MODEL.invokeExact(stones);
+		int[] first = games[0];
+		for (int i = 0; i < first.length / 2; i++)
+		{
+			Handles.MOVE.invokeExact(middle, first[i] >> 3, first[i] & 7);
+		}
+		model = Handles.NEW_MODEL.invokeExact(stones);
+	}
+
+	/**
+	 * Plays the next recorded move, starting a new game after the last
+	 */
+	private void next() throws Throwable
+	{
+		int[] moves = games[game];
+		int move = moves[ply];
+		Handles.MOVE.invokeExact(model, move >> 3, move & 7);
+		if (++ply == moves.length)
+		{
+			ply = 0;
+			game = (game + 1) % GAMES;
+			model = Handles.NEW_MODEL.invokeExact(stones);
+		}
+	}
+
+	@Benchmark
+	public void move() throws Throwable
+	{
+		next();
+	}
+
+	@Benchmark
+	public void moveUndoRedo() throws Throwable
+	{
+		next();
+		if ((boolean) Handles.IS_UNDOABLE.invokeExact(model))
+		{
+			Handles.UNDO.invokeExact(model);
+			Handles.REDO.invokeExact(model);
+		}
+	}
+
+	@Benchmark
+	public void preUndo() throws Throwable
+	{
+		Handles.PRE_UNDO.invokeExact(middle);
+	}
+
+	@Benchmark
+	public void checkAllPit() throws Throwable
+	{
+		Handles.CHECK_ALL_PIT.invokeExact(middle);
+	}
+
+	@Benchmark
+	public Object getPits() throws Throwable
+	{
+		return (Object) Handles.GET_PITS.invokeExact(middle);
+	}
+
+	@Benchmark
+	public Object getMancalas() throws Throwable
+	{
+		return (Object) Handles.GET_MANCALAS.invokeExact(middle);
+	}
+
+	@Benchmark
+	public void modelPlayout(Blackhole hole) throws Throwable
+	{
+		int[] moves = games[game];
+		game = (game + 1) % GAMES;
+		Object m = Handles.NEW_MODEL.invokeExact(stones);
+		for (int move : moves)
+		{
+			Handles.MOVE.invokeExact(m, move >> 3, move & 7);
+		}
+		hole.consume(m);
+	}
+
+	@Benchmark
+	public int boardStatePlayout() throws Throwable
+	{
+		int[] moves = games[game];
+		game = (game + 1) % GAMES;
+		Object board = Handles.NEW_BOARD.invokeExact(stones);
+		int result = 0;
+		for (int move : moves)
+		{
+			result = (int) Handles.PLAY.invokeExact(board, move >> 3, move & 7);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,114 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Checks the endgame tables against a plain search. Tables for a small
+ * number of stones are generated into a temporary file and opened as
+ * EndgameDatabase does for the game. Random positions they cover, with
+ * stones already in the mancalas, are then solved by searching every
+ * line to the end of the game with BoardState.play, and the final
+ * mancala difference must match probeScore. Any difference is printed
+ * and ends the check with a non-zero exit code.
+ *
+ * Usage: java EndgameCheck [max stones] [positions] [seed]
+ * @author Team7
+ */
+public class EndgameCheck
+{
+	private static final int MAX_STORE = 20;
+
+	/**
+	 * Finds the final mancala difference with best play by trying every
+	 * line to the end of the game
+	 * @param board a board, left unchanged
+	 * @param player the player to move
+	 * @return the player's final mancala minus his opponent's
+	 */
+	static int solve(BoardState board, int player)
+	{
+		int other = board.nextPlayer(player);
+		int best = Integer.MIN_VALUE;
+		for (long legal = board.getLegalMoves(player); legal != 0; legal &= legal - 1)
+		{
+			BoardState child = new BoardState(board);
+			int result = child.play(player, Long.numberOfTrailingZeros(legal));
+			int value;
+			if ((result & BoardState.GAME_OVER) != 0)
+			{
+				value = child.getStore(player) - child.getStore(other);
+			}
+			else if ((result & BoardState.FREE_TURN) != 0)
+			{
+				value = solve(child, player);
+			}
+			else
+			{
+				value = -solve(child, other);
+			}
+			best = Math.max(best, value);
+		}
+		return best;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		int maxStones = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		long positions = args.length > 1 ? Long.parseLong(args[1]) : 20000;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+		SplittableRandom rand = new SplittableRandom(seed);
+
+		File file = File.createTempFile("endgame", ".db");
+		file.deleteOnExit();
+		EndgameGenerator generator = new EndgameGenerator(maxStones);
+		generator.generate();
+		generator.write(file.getPath());
+		EndgameDatabase database = EndgameDatabase.open(file.getPath());
+
+		long checked = 0;
+		while (checked < positions)
+		{
+			BoardState board = new BoardState(0);
+			int stones = 1 + rand.nextInt(maxStones);
+			for (int s = 0; s < stones; s++)
+			{
+				int cell = rand.nextInt(BoardState.SIZE);
+				if (!board.isStore(cell))
+				{
+					board.setCell(cell, board.getCell(cell) + 1);
+				}
+			}
+			if (board.isSideEmpty(0) || board.isSideEmpty(1))
+			{
+				continue;
+			}
+			for (int player = 0; player < BoardState.PLAYERS; player++)
+			{
+				board.setCell(board.storeIndex(player), rand.nextInt(MAX_STORE));
+			}
+			int player = rand.nextInt(BoardState.PLAYERS);
+			if (!database.covers(board))
+			{
+				System.out.println("The tables do not cover a board with " + stones + " stones");
+				System.exit(1);
+			}
+
+			int expected = solve(board, player);
+			int actual = database.probeScore(board, player);
+			if (expected != actual)
+			{
+				StringBuilder cells = new StringBuilder();
+				for (int i = 0; i < BoardState.SIZE; i++)
+				{
+					cells.append(' ').append(board.getCell(i));
+				}
+				System.out.printf("Mismatch for player %d on%s: search %d, tables %d%n",
+						player, cells, expected, actual);
+				System.exit(1);
+			}
+			checked++;
+		}
+		System.out.printf("checked %d positions with up to %d stones against a full search, "
+				+ "no differences%n", checked, maxStones);
+	}
+}
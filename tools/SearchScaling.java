@@ -0,0 +1,57 @@
+/**
+ * Prints how the parallel search scales with the number of threads.
+ * For each thread count it searches both starting boards to a fixed
+ * depth and reports the time to depth and the nodes per second.
+ *
+ * Usage: java SearchScaling [depth] [table MB] [thread counts...]
+ * @author Team7
+ */
+public class SearchScaling
+{
+	public static void main(String[] args)
+	{
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 18;
+		int megabytes = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		int[] threadCounts = { 1, 2, 4, 8, 16 };
+		if (args.length > 2)
+		{
+			threadCounts = new int[args.length - 2];
+			for (int i = 2; i < args.length; i++)
+			{
+				threadCounts[i - 2] = Integer.parseInt(args[i]);
+			}
+		}
+
+		System.out.println("cores: " + Runtime.getRuntime().availableProcessors()
+				+ ", depth: " + depth + ", table: " + megabytes + " MB");
+		System.out.printf("%7s %6s %10s %12s %12s %8s%n",
+				"threads", "stones", "time (ms)", "nodes", "nps", "speedup");
+		for (int stones = 3; stones <= 4; stones++)
+		{
+			double baseTime = 0;
+			for (int threads : threadCounts)
+			{
+				BoardState board = new BoardState(stones);
+
+				// Warm up the JIT on a separate table before timing
+				SearchEngine warmup = new SearchEngine(depth, megabytes, threads);
+				warmup.searchToDepth(board, 0, depth - 4);
+				warmup.shutdown();
+
+				SearchEngine engine = new SearchEngine(depth, megabytes, threads);
+				long start = System.nanoTime();
+				engine.searchToDepth(board, 0, depth);
+				double millis = (System.nanoTime() - start) / 1e6;
+				long nodes = engine.getNodes();
+				engine.shutdown();
+
+				if (baseTime == 0)
+				{
+					baseTime = millis;
+				}
+				System.out.printf("%7d %6d %10.1f %12d %12.0f %8.2f%n", threads, stones,
+						millis, nodes, nodes / millis * 1000, baseTime / millis);
+			}
+		}
+	}
+}
@@ -0,0 +1,279 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+/**
+ * Loads a GameServer with many games at once and measures it. Every
+ * session plays random legal moves, waiting a think time between a
+ * reply and its next move, and starts a new game when one ends. The
+ * time from sending each move to reading its reply is recorded once all
+ * sessions are playing, and the server's heap is measured with no
+ * sessions, with every game just started and at the end, to work out
+ * how many sessions fit in a gigabyte.
+ *
+ * The client is a single thread with a selector, so its own work is
+ * part of the latencies it measures.
+ *
+ * Usage: java ServerLoadTest [sessions] [seconds] [think ms] [host] [port]
+ * @author Team7
+ */
+public class ServerLoadTest
+{
+	private static final int STONES = 4;
+	private static final double GB = 1L << 30;
+
+	/**
+	 * One connection to the server
+	 */
+	private static class Client
+	{
+		final SocketChannel channel;
+		final ByteBuffer in = ByteBuffer.allocate(256);
+		long sentAt;
+		long nextAt;
+		long legal;
+		boolean started;
+
+		Client(SocketChannel channel)
+		{
+			this.channel = channel;
+		}
+	}
+
+	private final SplittableRandom rand = new SplittableRandom(1);
+	private final ByteBuffer out = ByteBuffer.allocate(64);
+	private final ArrayDeque<Client> waiting = new ArrayDeque<Client>();
+	private final Selector selector;
+	private final long think;
+	private long[] latencies = new long[1 << 16];
+	private int samples;
+	private boolean recording;
+	private int started;
+	private long moves;
+	private long errors;
+
+	private ServerLoadTest(long thinkNanos) throws IOException
+	{
+		selector = Selector.open();
+		think = thinkNanos;
+	}
+
+	/**
+	 * Asks the server for its statistics on a separate connection
+	 * @return the words of the STATS reply
+	 */
+	private static String[] stats(InetSocketAddress address) throws IOException
+	{
+		try (Socket socket = new Socket(address.getAddress(), address.getPort()))
+		{
+			PrintWriter writer = new PrintWriter(socket.getOutputStream(), true);
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			writer.println("STATS GC");
+			String[] words = reader.readLine().split(" ");
+			writer.println("QUIT");
+			return words;
+		}
+	}
+
+	/**
+	 * Sends a command on a client's connection
+	 */
+	private void send(Client client, String command) throws IOException
+	{
+		out.clear();
+		for (int i = 0; i < command.length(); i++)
+		{
+			out.put((byte) command.charAt(i));
+		}
+		out.put((byte) '\n');
+		out.flip();
+		client.sentAt = System.nanoTime();
+		while (out.hasRemaining())
+		{
+			client.channel.write(out);
+		}
+	}
+
+	/**
+	 * Handles a reply: records its latency and schedules the next move
+	 */
+	private void reply(Client client, String line, long now)
+	{
+		if (recording)
+		{
+			if (samples == latencies.length)
+			{
+				latencies = Arrays.copyOf(latencies, samples * 2);
+			}
+			latencies[samples++] = now - client.sentAt;
+		}
+		if (!line.startsWith("OK"))
+		{
+			errors++;
+			client.legal = 0;
+		}
+		else
+		{
+			String[] words = line.split(" ");
+			client.legal = Long.parseLong(words[3]);
+		}
+		if (!client.started)
+		{
+			client.started = true;
+			started++;
+		}
+		moves++;
+		client.nextAt = now + think;
+		waiting.add(client);
+	}
+
+	/**
+	 * Sends the moves whose think time is over
+	 */
+	private void play(long now) throws IOException
+	{
+		// Every client waits as long, so the queue is in order of time
+		while (!waiting.isEmpty() && waiting.peek().nextAt <= now)
+		{
+			Client client = waiting.poll();
+			long legal = client.legal;
+			if (legal == 0)
+			{
+				send(client, "NEW " + STONES);
+				continue;
+			}
+			int k = rand.nextInt(Long.bitCount(legal));
+			for (int i = 0; i < k; i++)
+			{
+				legal &= legal - 1;
+			}
+			send(client, "MOVE " + Long.numberOfTrailingZeros(legal));
+		}
+	}
+
+	/**
+	 * Reads whatever replies have arrived
+	 */
+	private void read(long timeoutMillis) throws IOException
+	{
+		selector.select(Math.max(1, timeoutMillis));
+		long now = System.nanoTime();
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext())
+		{
+			SelectionKey key = keys.next();
+			keys.remove();
+			Client client = (Client) key.attachment();
+			if (client.channel.read(client.in) < 0)
+			{
+				throw new IOException("The server closed a session.");
+			}
+			for (int i = 0; i < client.in.position(); i++)
+			{
+				if (client.in.get(i) == '\n')
+				{
+					String line = new String(client.in.array(), 0, i, StandardCharsets.US_ASCII);
+					client.in.flip();
+					client.in.position(i + 1);
+					client.in.compact();
+					reply(client, line, now);
+					i = -1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the selector until a time, playing moves as they are due
+	 */
+	private void runUntil(long end) throws IOException
+	{
+		for (long now = System.nanoTime(); now < end; now = System.nanoTime())
+		{
+			play(now);
+			long next = waiting.isEmpty() ? end : Math.min(end, waiting.peek().nextAt);
+			read((next - now) / 1000000);
+		}
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+		int thinkMillis = args.length > 2 ? Integer.parseInt(args[2]) : 250;
+		String host = args.length > 3 ? args[3] : "127.0.0.1";
+		int port = args.length > 4 ? Integer.parseInt(args[4]) : GameServer.DEFAULT_PORT;
+		InetSocketAddress address = new InetSocketAddress(host, port);
+
+		long baseHeap = Long.parseLong(stats(address)[4]);
+		ServerLoadTest test = new ServerLoadTest(thinkMillis * 1000000L);
+		long begin = System.nanoTime();
+		for (int i = 0; i < sessions; i++)
+		{
+			SocketChannel channel = SocketChannel.open(address);
+			channel.socket().setTcpNoDelay(true);
+			channel.configureBlocking(false);
+			Client client = new Client(channel);
+			channel.register(test.selector, SelectionKey.OP_READ, client);
+			test.send(client, "NEW " + STONES);
+		}
+		while (test.started < sessions)
+		{
+			test.read(100);
+		}
+		System.out.printf("%d sessions connected and playing in %.1f s%n", sessions,
+				(System.nanoTime() - begin) / 1e9);
+		String[] fresh = stats(address);
+
+		// Let the games get going before measuring
+		test.runUntil(System.nanoTime() + Math.max(1, seconds / 5) * 1000000000L);
+		test.recording = true;
+		long moves = test.moves;
+		begin = System.nanoTime();
+		test.runUntil(begin + seconds * 1000000000L);
+		double elapsed = (System.nanoTime() - begin) / 1e9;
+		test.recording = false;
+		String[] end = stats(address);
+
+		long[] sorted = Arrays.copyOf(test.latencies, test.samples);
+		Arrays.sort(sorted);
+		System.out.printf("%d replies in %.1f s: %.0f/s, %d errors%n", test.moves - moves,
+				elapsed, (test.moves - moves) / elapsed, test.errors);
+		System.out.printf("latency p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+				percentile(sorted, 0.5), percentile(sorted, 0.9), percentile(sorted, 0.99),
+				percentile(sorted, 0.999), sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+		for (String[] measured : new String[][] { fresh, end })
+		{
+			long heap = Long.parseLong(measured[4]) - baseHeap;
+			System.out.printf("server heap %s: %.1f MB for %s sessions, %.0f bytes each, "
+					+ "%.0f sessions per GB%n", measured == fresh ? "at start" : "at end",
+					heap / 1e6, measured[1], (double) heap / sessions, sessions * GB / heap);
+		}
+	}
+
+	/**
+	 * Reads a percentile from sorted latencies
+	 * @return the latency in milliseconds
+	 */
+	private static double percentile(long[] sorted, double fraction)
+	{
+		if (sorted.length == 0)
+		{
+			return 0;
+		}
+		return sorted[(int) Math.min(sorted.length - 1, sorted.length * fraction)] / 1e6;
+	}
+}
@@ -0,0 +1,233 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks SharedGame. Random games are played through both Model and
+ * SharedGame, and must end up the same. Then a player thread plays
+ * games while spectator threads read snapshots as fast as they can,
+ * checking each snapshot is whole: no stones lost, versions never going
+ * back and legal moves that match the board. Last, two players race for
+ * the same moves, and every move must be played exactly once. Any
+ * failure ends the check with a non-zero exit code.
+ *
+ * Usage: java SharedGameCheck [spectators] [seconds]
+ * @author Team7
+ */
+public class SharedGameCheck
+{
+	private static final int STONES = 4;
+	private static final int GAMES = 100000;
+
+	private static volatile SharedGame game;
+	private static volatile boolean running;
+
+	/**
+	 * Picks a random legal pit for the active player
+	 */
+	private static int pick(long legal, SplittableRandom rand)
+	{
+		int k = rand.nextInt(Long.bitCount(legal));
+		for (int i = 0; i < k; i++)
+		{
+			legal &= legal - 1;
+		}
+		return Long.numberOfTrailingZeros(legal);
+	}
+
+	private static void fail(String message)
+	{
+		System.out.println(message);
+		System.exit(1);
+	}
+
+	/**
+	 * Plays the same random games through Model and SharedGame
+	 */
+	private static void compare()
+	{
+		SplittableRandom rand = new SplittableRandom(1);
+		for (int g = 0; g < GAMES; g++)
+		{
+			Model model = new Model(3 + (g & 1));
+			SharedGame shared = new SharedGame(model);
+			while (!model.isGameEnd())
+			{
+				int player = model.getActive();
+				int pit = pick(model.getLegalMoves(), rand);
+				int expected = model.make(pit);
+				int actual = shared.move(player, pit);
+				SharedGame.Snapshot snapshot = shared.getSnapshot();
+				boolean same = expected == actual && model.getActive() == snapshot.getActive()
+						&& model.isGameEnd() == snapshot.isGameEnd()
+						&& model.getLegalMoves() == snapshot.getLegalMoves();
+				for (int i = 0; i < model.getCellCount(); i++)
+				{
+					same &= model.getCell(i) == snapshot.getCell(i);
+				}
+				if (!same)
+				{
+					fail("Mismatch with Model in game " + g);
+				}
+			}
+		}
+		System.out.println("played " + GAMES + " games, same as Model");
+	}
+
+	/**
+	 * Plays random games on the shared game until stopped
+	 */
+	private static void play(AtomicLong moves, long seed)
+	{
+		SplittableRandom rand = new SplittableRandom(seed);
+		long played = 0;
+		while (running)
+		{
+			SharedGame.Snapshot snapshot = game.getSnapshot();
+			if (snapshot.isGameEnd())
+			{
+				game = new SharedGame(STONES);
+				continue;
+			}
+			if (game.move(snapshot, snapshot.getActive(), pick(snapshot.getLegalMoves(), rand))
+					>= 0)
+			{
+				played++;
+			}
+		}
+		moves.addAndGet(played);
+	}
+
+	/**
+	 * Reads snapshots until stopped, checking each one
+	 */
+	private static void watch(AtomicLong reads)
+	{
+		long read = 0;
+		SharedGame watched = null;
+		long version = 0;
+		while (running)
+		{
+			SharedGame shared = game;
+			SharedGame.Snapshot snapshot = shared.getSnapshot();
+			if (shared != watched)
+			{
+				watched = shared;
+				version = 0;
+			}
+			if (snapshot.getVersion() < version)
+			{
+				fail("A snapshot went back from version " + version);
+			}
+			version = snapshot.getVersion();
+
+			int stones = 0;
+			long legal = 0;
+			for (int i = 0; i < snapshot.getCellCount(); i++)
+			{
+				stones += snapshot.getCell(i);
+			}
+			for (int pit = 0; pit < BoardState.PITS; pit++)
+			{
+				if (snapshot.isLegalMove(snapshot.getActive(), pit))
+				{
+					legal |= 1L << pit;
+				}
+			}
+			if (stones != STONES * BoardState.PLAYERS * BoardState.PITS
+					|| legal != snapshot.getLegalMoves())
+			{
+				fail("A snapshot was torn at version " + version);
+			}
+			read++;
+		}
+		reads.addAndGet(read);
+	}
+
+	/**
+	 * Runs a player and some spectators for a while
+	 * @return the moves played
+	 */
+	private static long run(int spectators, int seconds, AtomicLong reads)
+			throws InterruptedException
+	{
+		AtomicLong moves = new AtomicLong();
+		game = new SharedGame(STONES);
+		running = true;
+		Thread[] threads = new Thread[spectators + 1];
+		threads[0] = new Thread(() -> play(moves, 2));
+		for (int i = 1; i < threads.length; i++)
+		{
+			threads[i] = new Thread(() -> watch(reads));
+		}
+		for (Thread thread : threads)
+		{
+			thread.start();
+		}
+		Thread.sleep(seconds * 1000L);
+		running = false;
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+		return moves.get();
+	}
+
+	/**
+	 * Has two players race to play every move of one long game
+	 */
+	private static void race() throws InterruptedException
+	{
+		final SharedGame shared = new SharedGame(new Model(BoardState.PLAYERS,
+				BoardState.PITS, 50, 1));
+		final AtomicLong played = new AtomicLong();
+		final AtomicLong conflicts = new AtomicLong();
+		Thread[] threads = new Thread[2];
+		for (int t = 0; t < threads.length; t++)
+		{
+			final SplittableRandom rand = new SplittableRandom(t + 10);
+			threads[t] = new Thread(() ->
+			{
+				for (SharedGame.Snapshot s = shared.getSnapshot(); !s.isGameEnd();
+						s = shared.getSnapshot())
+				{
+					int result = shared.move(s, s.getActive(), pick(s.getLegalMoves(), rand));
+					if (result == SharedGame.CONFLICT)
+					{
+						conflicts.incrementAndGet();
+					}
+					else if (result >= 0)
+					{
+						played.incrementAndGet();
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+		if (played.get() != shared.getSnapshot().getVersion())
+		{
+			fail("Raced moves were lost or played twice");
+		}
+		System.out.printf("race: %d moves played once each, %d lost a race%n", played.get(),
+				conflicts.get());
+	}
+
+	public static void main(String[] args) throws InterruptedException
+	{
+		int spectators = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+		compare();
+		AtomicLong reads = new AtomicLong();
+		long alone = run(0, seconds, reads);
+		long watched = run(spectators, seconds, reads);
+		System.out.printf("player alone: %.0f moves/s%n", (double) alone / seconds);
+		System.out.printf("player with %d spectators: %.0f moves/s, spectators read %.0f "
+				+ "snapshots/s, none torn%n", spectators, (double) watched / seconds,
+				(double) reads.get() / seconds);
+		race();
+	}
+}
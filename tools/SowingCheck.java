@@ -0,0 +1,209 @@
+import java.util.SplittableRandom;
+
+/**
+ * Checks BoardState's sowing against the plain rules, played one stone
+ * at a time, on random boards of random sizes, then times both with
+ * small and large piles of stones. BoardState's time includes keeping
+ * its side totals and masks, which the plain rules do not. Any
+ * difference in the cells, the changed cells, the side totals and masks
+ * or the result of the move is printed and ends the check with a
+ * non-zero exit code.
+ *
+ * Usage: java SowingCheck [positions] [seed]
+ * @author Team7
+ */
+public class SowingCheck
+{
+	private static final int MAX_PLAYERS = 4;
+	private static final int MAX_PITS = 10;
+	private static final int TIMED_MOVES = 2000000;
+	private static final int TIMED_ROUNDS = 3;
+
+	/**
+	 * Plays a move the way the rules describe it, one stone at a time
+	 * @param cells the cells of a board, changed by the move
+	 * @param players the number of players
+	 * @param pits the number of pits per player
+	 * @param player the player moving
+	 * @param pit the pit to pick up
+	 * @param changed a one element array that the changed cells are added to
+	 * @return a combination of BoardState.FREE_TURN, CAPTURE and GAME_OVER
+	 */
+	static int playByStone(int[] cells, int players, int pits, int player, int pit,
+			long[] changed)
+	{
+		int stride = pits + 1;
+		int index = player * stride + pit;
+		int stones = cells[index];
+		cells[index] = 0;
+		changed[0] |= bit(index);
+		while (stones > 0)
+		{
+			index = (index + 1) % cells.length;
+			if (index % stride == pits && index / stride != player)
+			{
+				continue;
+			}
+			cells[index]++;
+			changed[0] |= bit(index);
+			stones--;
+		}
+
+		int result = 0;
+		if (index % stride == pits)
+		{
+			result = BoardState.FREE_TURN;
+		}
+		else if (index / stride == player && cells[index] == 1)
+		{
+			int across = (player + 1) % players * stride + pits - 1 - index % stride;
+			int store = player * stride + pits;
+			cells[store] += cells[index] + cells[across];
+			cells[index] = 0;
+			cells[across] = 0;
+			changed[0] |= bit(store) | bit(index) | bit(across);
+			result = BoardState.FREE_TURN | BoardState.CAPTURE;
+		}
+
+		for (int p = 0; p < players; p++)
+		{
+			boolean empty = true;
+			for (int i = p * stride; i < p * stride + pits; i++)
+			{
+				empty &= cells[i] == 0;
+			}
+			if (empty)
+			{
+				for (int q = 0; q < players; q++)
+				{
+					int store = q * stride + pits;
+					for (int i = q * stride; i < store; i++)
+					{
+						if (cells[i] != 0)
+						{
+							cells[store] += cells[i];
+							cells[i] = 0;
+							changed[0] |= bit(i) | bit(store);
+						}
+					}
+				}
+				return result | BoardState.GAME_OVER;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Times BoardState playing moves from a position
+	 * @return the time taken in nanoseconds
+	 */
+	private static long timeBoardState(BoardState start, BoardState board)
+	{
+		long begin = System.nanoTime();
+		for (int m = 0; m < TIMED_MOVES; m++)
+		{
+			board.copyFrom(start);
+			board.play(m & 1, m % BoardState.PITS);
+		}
+		return System.nanoTime() - begin;
+	}
+
+	/**
+	 * Times the plain rules playing moves from a position
+	 * @return the time taken in nanoseconds
+	 */
+	private static long timeByStone(BoardState start, int[] cells, long[] changed)
+	{
+		long begin = System.nanoTime();
+		for (int m = 0; m < TIMED_MOVES; m++)
+		{
+			start.save(cells, 0);
+			playByStone(cells, BoardState.PLAYERS, BoardState.PITS, m & 1,
+					m % BoardState.PITS, changed);
+		}
+		return System.nanoTime() - begin;
+	}
+
+	private static long bit(int index)
+	{
+		return 1L << Math.min(index, 63);
+	}
+
+	public static void main(String[] args)
+	{
+		long positions = args.length > 0 ? Long.parseLong(args[0]) : 1000000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+		SplittableRandom rand = new SplittableRandom(seed);
+
+		long checked = 0;
+		long[] changed = new long[1];
+		while (checked < positions)
+		{
+			int players = 2 + rand.nextInt(MAX_PLAYERS - 1);
+			int pits = 1 + rand.nextInt(MAX_PITS);
+			BoardState board = new BoardState(players, pits, 0);
+			int[] cells = new int[board.getSize()];
+			for (int i = 0; i < cells.length; i++)
+			{
+				// Mostly small piles, with some that go round the board many times
+				cells[i] = rand.nextInt(4) == 0 ? rand.nextInt(500) : rand.nextInt(8);
+				board.setCell(i, cells[i]);
+			}
+			int player = rand.nextInt(players);
+			int pit = rand.nextInt(pits);
+			if (cells[player * (pits + 1) + pit] == 0)
+			{
+				continue;
+			}
+
+			board.clearChanged();
+			changed[0] = 0;
+			int expected = playByStone(cells, players, pits, player, pit, changed);
+			int actual = board.play(player, pit);
+			boolean same = expected == actual && changed[0] == board.getChanged();
+			for (int i = 0; i < cells.length; i++)
+			{
+				same &= cells[i] == board.getCell(i);
+			}
+			for (int p = 0; p < players; p++)
+			{
+				int total = 0;
+				long occupied = 0;
+				for (int i = 0; i < pits; i++)
+				{
+					total += cells[p * (pits + 1) + i];
+					occupied |= cells[p * (pits + 1) + i] != 0 ? 1L << i : 0;
+				}
+				same &= total == board.getSideTotal(p) && occupied == board.getOccupiedPits(p);
+			}
+			if (!same)
+			{
+				System.out.printf("Mismatch: %d players, %d pits, player %d, pit %d%n",
+						players, pits, player, pit);
+				System.exit(1);
+			}
+			checked++;
+		}
+		System.out.println("checked " + checked + " positions, no differences");
+
+		// Time both on the standard board with small and large piles.
+		// The best round is kept, so the first size timed is not charged
+		// for compiling the code.
+		for (int stones : new int[] { 4, 40, 400 })
+		{
+			BoardState start = new BoardState(stones);
+			BoardState board = new BoardState(start);
+			int[] cells = new int[BoardState.SIZE];
+			long packed = Long.MAX_VALUE;
+			long byStone = Long.MAX_VALUE;
+			for (int round = 0; round < TIMED_ROUNDS; round++)
+			{
+				packed = Math.min(packed, timeBoardState(start, board));
+				byStone = Math.min(byStone, timeByStone(start, cells, changed));
+			}
+			System.out.printf("%3d stones per pit: %6.1f ns/move BoardState, "
+					+ "%6.1f ns/move by stone%n", stones,
+					(double) packed / TIMED_MOVES, (double) byStone / TIMED_MOVES);
+		}
+	}
+}